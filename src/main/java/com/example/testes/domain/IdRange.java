@@ -0,0 +1,29 @@
+package com.example.testes.domain;
+
+/*
+ * Menor e maior id da tabela de planetas. Ambos são nulos quando a tabela
+ * está vazia.
+ */
+public class IdRange {
+
+    private final Long min;
+    private final Long max;
+
+    public IdRange(Long min, Long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public Long getMin() {
+        return min;
+    }
+
+    public Long getMax() {
+        return max;
+    }
+
+    public boolean isEmpty() {
+        return min == null || max == null;
+    }
+
+}
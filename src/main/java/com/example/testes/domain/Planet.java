@@ -1,15 +1,32 @@
 package com.example.testes.domain;
 
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.Locale;
+
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 
+/*
+ * Planetas removidos continuam na tabela (com deleted_at preenchido) até o
+ * expurgo em lote, e ficam fora de todas as consultas JPQL e por id.
+ */
 @Entity
 @Table(name = "planets")
+@SQLRestriction("deleted_at is null")
 public class Planet {
 
    @Id
@@ -17,9 +34,20 @@ public class Planet {
    private Long id;
 
    @NotBlank
-   @Column(nullable = false, unique = true)
+   @Column(nullable = false)
    private String name;
 
+   /*
+    * Forma canônica do nome (Unicode NFKC em minúsculas), mantida pela própria
+    * entidade. A unicidade dos nomes é garantida por esta coluna, então
+    * "Tatooine" e "tatooine" são o mesmo planeta e a busca por nome sem
+    * diferenciar maiúsculas é uma consulta direta ao índice único.
+    * Fica nulo quando o planeta é removido, liberando o nome imediatamente.
+    */
+   @JsonIgnore
+   @Column(name = "normalized_name", unique = true)
+   private String normalizedName;
+
    @NotBlank
    @Column(nullable = false)
    private String terrain;
@@ -28,6 +56,22 @@ public class Planet {
    @Column(nullable = false)
    private String climate;
 
+   /*
+    * Controle de concorrência otimista: cada atualização incrementa a versão e
+    * só é aplicada se a versão esperada pelo cliente ainda for a atual.
+    * Somente leitura no JSON: a versão esperada chega pelo If-Match, e uma
+    * versão no corpo do POST faria o Spring Data tratar o planeta como
+    * existente (merge em vez de persist).
+    */
+   @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+   @Version
+   @Column(nullable = false)
+   private Long version;
+
+   @JsonIgnore
+   @Column(name = "deleted_at")
+   private Instant deletedAt;
+
    public Planet() {
    }
 
@@ -49,6 +93,24 @@ public class Planet {
       this.climate = climate;
    }
 
+   public Planet(Long id, String name, String climate, String terrain, Long version) {
+      this(id, name, climate, terrain);
+      this.version = version;
+   }
+
+   public static String normalizeName(String name) {
+      if (name == null) {
+         return null;
+      }
+      return Normalizer.normalize(name, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+   }
+
+   @PrePersist
+   @PreUpdate
+   void updateNormalizedName() {
+      normalizedName = normalizeName(name);
+   }
+
    public Long getId() {
       return id;
    }
@@ -81,6 +143,14 @@ public class Planet {
       this.climate = climate;
    }
 
+   public Long getVersion() {
+      return version;
+   }
+
+   public void setVersion(Long version) {
+      this.version = version;
+   }
+
    @Override
    public int hashCode() {
       final int prime = 31;
@@ -0,0 +1,163 @@
+package com.example.testes.domain;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+/*
+ * Versões assíncronas das operações do PlanetService, para quem precisa de
+ * várias consultas independentes na mesma requisição: as chamadas rodam em
+ * paralelo e o tempo total passa a ser o da mais lenta, e não a soma de todas.
+ *
+ * As tarefas rodam no executor da aplicação configurado pelo Spring Boot
+ * (spring.task.execution.*), que é limitado em threads e em fila; com
+ * spring.threads.virtual.enabled=true em Java 21+, o Boot passa a usar threads
+ * virtuais com limite de concorrência. Cada future expira após o timeout
+ * configurado, e cancelar o future (ou expirar) cancela a tarefa, interrompendo
+ * a thread se ela já tiver começado.
+ *
+ * Os contadores são publicados por JMX como
+ * com.example.testes:type=PlanetAsyncService quando spring.jmx.enabled=true.
+ */
+@Service
+@ManagedResource(objectName = "com.example.testes:type=PlanetAsyncService")
+public class PlanetAsyncService {
+
+    private final PlanetService planetService;
+    private final AsyncTaskExecutor executor;
+    private final Duration timeout;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PlanetAsyncService(PlanetService planetService,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+            @Value("${planets.async.timeout:2s}") Duration timeout) {
+        this.planetService = planetService;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    public CompletableFuture<Optional<Planet>> get(Long id) {
+        return submit(() -> planetService.get(id));
+    }
+
+    public CompletableFuture<Optional<Planet>> getByName(String name) {
+        return submit(() -> planetService.getByName(name));
+    }
+
+    public CompletableFuture<PlanetLookup> getAll(Collection<Long> ids, Collection<String> names) {
+        return submit(() -> planetService.getAll(ids, names));
+    }
+
+    public CompletableFuture<List<Planet>> list(String climate, String terrain) {
+        return submit(() -> planetService.list(climate, terrain));
+    }
+
+    public CompletableFuture<List<Planet>> search(String query, int limit) {
+        return submit(() -> planetService.search(query, limit));
+    }
+
+    public CompletableFuture<List<PlanetCount>> count(PlanetAttribute attribute, boolean tokens, String climate,
+            String terrain) {
+        return submit(() -> planetService.count(attribute, tokens, climate, terrain));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submitted.incrementAndGet();
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                /*
+                 * complete() executa os dependentes antes de retornar, então o contador
+                 * sobe antes e é desfeito se o future já tiver expirado ou sido cancelado.
+                 */
+                try {
+                    T value = operation.get();
+                    completed.incrementAndGet();
+                    if (!result.complete(value)) {
+                        completed.decrementAndGet();
+                    }
+                } catch (Throwable ex) {
+                    failed.incrementAndGet();
+                    if (!result.completeExceptionally(ex)) {
+                        failed.decrementAndGet();
+                    }
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            rejected.incrementAndGet();
+            result.completeExceptionally(ex);
+            return result;
+        }
+
+        // Os tratadores ficam no próprio future devolvido: cancelá-lo (ou expirar) chega à tarefa.
+        result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((value, ex) -> {
+                    if (ex instanceof TimeoutException) {
+                        timedOut.incrementAndGet();
+                        task.cancel(true);
+                    } else if (ex instanceof CancellationException) {
+                        cancelled.incrementAndGet();
+                        task.cancel(true);
+                    }
+                });
+        return result;
+    }
+
+    @ManagedAttribute
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    @ManagedAttribute
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @ManagedAttribute
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @ManagedAttribute
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    @ManagedAttribute
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    @ManagedAttribute
+    public long getRejected() {
+        return rejected.get();
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.example.testes.domain;
+
+/*
+ * Atributos de Planet que podem ser agrupados nas estatísticas.
+ */
+public enum PlanetAttribute {
+
+    CLIMATE,
+    TERRAIN;
+
+    public static PlanetAttribute of(String value) {
+        for (PlanetAttribute attribute : values()) {
+            if (attribute.name().equalsIgnoreCase(value)) {
+                return attribute;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported attribute: " + value);
+    }
+
+}
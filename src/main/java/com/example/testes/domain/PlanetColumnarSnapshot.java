@@ -0,0 +1,324 @@
+package com.example.testes.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * Cópia somente leitura de todos os planetas, organizada em colunas fora do
+ * heap, para análises que filtram e contam o catálogo inteiro repetidas vezes
+ * sem criar uma entidade por linha.
+ *
+ * Cada linha ocupa uma posição nas colunas (ByteBuffer diretos): id, código do
+ * clima, código do terreno e posição/tamanho do nome, cujos bytes UTF-8 ficam
+ * em um único buffer. Clima e terreno são codificados por dicionário, então um
+ * filtro é resolvido uma vez contra os poucos valores distintos e a varredura
+ * compara apenas inteiros. Remoções apenas marcam a linha; alterações
+ * reescrevem os códigos no lugar; criações acrescentam uma linha no fim.
+ *
+ * A cópia é carregada na primeira consulta e mantida pelos eventos do
+ * service, aplicados depois do commit. Quando as linhas removidas passam da metade, ou um id chega fora de
+ * ordem, ela é recarregada do banco na consulta seguinte.
+ */
+@Component
+public class PlanetColumnarSnapshot {
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_NAME_BYTES = 16 * 1024;
+
+    private final PlanetRepository planetRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary climates = new Dictionary();
+    private final Dictionary terrains = new Dictionary();
+    private final BitSet removed = new BitSet();
+    private ByteBuffer ids;
+    private ByteBuffer climateCodes;
+    private ByteBuffer terrainCodes;
+    private ByteBuffer nameOffsets;
+    private ByteBuffer nameLengths;
+    private ByteBuffer names;
+    private int rows;
+    private int nameBytes;
+    private volatile boolean loaded;
+    private volatile boolean stale;
+
+    public PlanetColumnarSnapshot(PlanetRepository planetRepository, PlatformTransactionManager transactionManager) {
+        this.planetRepository = planetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /*
+     * Quantidade de planetas com o clima e o terreno informados (comparação
+     * exata ignorando maiúsculas, como no QueryBuilder). Filtros nulos não
+     * restringem.
+     */
+    public long count(String climate, String terrain) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            boolean[] climateMatches = climates.matches(climate);
+            boolean[] terrainMatches = terrains.matches(terrain);
+            long count = 0;
+            for (int row = 0; row < rows; row++) {
+                if (climateMatches[climateCodes.getInt(row * Integer.BYTES)]
+                        && terrainMatches[terrainCodes.getInt(row * Integer.BYTES)]) {
+                    count++;
+                }
+            }
+            // As linhas removidas mantêm os códigos, então são descontadas à parte.
+            for (int row = removed.nextSetBit(0); row >= 0 && row < rows; row = removed.nextSetBit(row + 1)) {
+                if (climateMatches[climateCodes.getInt(row * Integer.BYTES)]
+                        && terrainMatches[terrainCodes.getInt(row * Integer.BYTES)]) {
+                    count--;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Os planetas que atendem aos filtros, em ordem de id. Somente as linhas
+     * selecionadas viram objetos.
+     */
+    public List<Planet> list(String climate, String terrain) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            boolean[] climateMatches = climates.matches(climate);
+            boolean[] terrainMatches = terrains.matches(terrain);
+            List<Planet> planets = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                int climateCode = climateCodes.getInt(row * Integer.BYTES);
+                int terrainCode = terrainCodes.getInt(row * Integer.BYTES);
+                if (climateMatches[climateCode] && terrainMatches[terrainCode] && !removed.get(row)) {
+                    planets.add(new Planet(ids.getLong(row * Long.BYTES), name(row), climates.value(climateCode),
+                            terrains.value(terrainCode)));
+                }
+            }
+            return planets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return rows - removed.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCreated(PlanetCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded && !stale) {
+                Planet planet = event.getPlanet();
+                if (rows > 0 && planet.getId() <= ids.getLong((rows - 1) * Long.BYTES)) {
+                    stale = true;
+                } else {
+                    append(planet);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUpdated(PlanetUpdatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded && !stale) {
+                Planet planet = event.getPlanet();
+                int row = find(planet.getId());
+                if (row < 0) {
+                    stale = true;
+                    return;
+                }
+                climateCodes.putInt(row * Integer.BYTES, climates.code(planet.getClimate()));
+                terrainCodes.putInt(row * Integer.BYTES, terrains.code(planet.getTerrain()));
+                if (!planet.getName().equals(name(row))) {
+                    putName(row, planet.getName());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoved(PlanetRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded && !stale) {
+                int row = find(event.getId());
+                if (row >= 0) {
+                    removed.set(row);
+                    stale = removed.cardinality() > rows / 2;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded && !stale) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded || stale) {
+                clear();
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Planet> planets = planetRepository.streamAll()) {
+                        planets.forEach(this::append);
+                    }
+                });
+                loaded = true;
+                stale = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear() {
+        ids = allocate(INITIAL_ROWS * Long.BYTES);
+        climateCodes = allocate(INITIAL_ROWS * Integer.BYTES);
+        terrainCodes = allocate(INITIAL_ROWS * Integer.BYTES);
+        nameOffsets = allocate(INITIAL_ROWS * Integer.BYTES);
+        nameLengths = allocate(INITIAL_ROWS * Integer.BYTES);
+        names = allocate(INITIAL_NAME_BYTES);
+        climates.clear();
+        terrains.clear();
+        removed.clear();
+        rows = 0;
+        nameBytes = 0;
+    }
+
+    private void append(Planet planet) {
+        if ((rows + 1) * Long.BYTES > ids.capacity()) {
+            int capacity = rows * 2;
+            ids = grow(ids, capacity * Long.BYTES);
+            climateCodes = grow(climateCodes, capacity * Integer.BYTES);
+            terrainCodes = grow(terrainCodes, capacity * Integer.BYTES);
+            nameOffsets = grow(nameOffsets, capacity * Integer.BYTES);
+            nameLengths = grow(nameLengths, capacity * Integer.BYTES);
+        }
+        int row = rows++;
+        ids.putLong(row * Long.BYTES, planet.getId());
+        climateCodes.putInt(row * Integer.BYTES, climates.code(planet.getClimate()));
+        terrainCodes.putInt(row * Integer.BYTES, terrains.code(planet.getTerrain()));
+        putName(row, planet.getName());
+    }
+
+    /*
+     * Os bytes do nome são sempre acrescentados ao fim do buffer; o espaço do
+     * nome anterior só é recuperado na próxima recarga.
+     */
+    private void putName(int row, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes + bytes.length > names.capacity()) {
+            names = grow(names, Math.max(names.capacity() * 2, nameBytes + bytes.length));
+        }
+        names.put(nameBytes, bytes);
+        nameOffsets.putInt(row * Integer.BYTES, nameBytes);
+        nameLengths.putInt(row * Integer.BYTES, bytes.length);
+        nameBytes += bytes.length;
+    }
+
+    private String name(int row) {
+        byte[] bytes = new byte[nameLengths.getInt(row * Integer.BYTES)];
+        names.get(nameOffsets.getInt(row * Integer.BYTES), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Busca binária pelo id: as linhas são sempre acrescentadas em ordem de id,
+     * e as removidas continuam no lugar.
+     */
+    private int find(long id) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = ids.getLong(middle * Long.BYTES);
+            if (current < id) {
+                low = middle + 1;
+            } else if (current > id) {
+                high = middle - 1;
+            } else {
+                return removed.get(middle) ? -1 : middle;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int bytes) {
+        ByteBuffer grown = allocate(bytes);
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    /*
+     * Valores distintos de uma coluna e seus códigos, na ordem em que apareceram.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int code(String value) {
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private String value(int code) {
+            return values.get(code);
+        }
+
+        private boolean[] matches(String filter) {
+            boolean[] matches = new boolean[values.size()];
+            for (int code = 0; code < matches.length; code++) {
+                matches[code] = filter == null || filter.equalsIgnoreCase(values.get(code));
+            }
+            return matches;
+        }
+
+        private void clear() {
+            codes.clear();
+            values.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.testes.domain;
+
+/*
+ * Quantidade de planetas para um valor de clima ou terreno.
+ */
+public class PlanetCount {
+
+    private final String value;
+    private final Long total;
+
+    public PlanetCount(String value, Long total) {
+        this.value = value;
+        this.total = total;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((value == null) ? 0 : value.hashCode());
+        result = prime * result + ((total == null) ? 0 : total.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        PlanetCount other = (PlanetCount) obj;
+        if (value == null) {
+            if (other.value != null)
+                return false;
+        } else if (!value.equals(other.value))
+            return false;
+        if (total == null) {
+            if (other.total != null)
+                return false;
+        } else if (!total.equals(other.total))
+            return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "PlanetCount [value=" + value + ", total=" + total + "]";
+    }
+
+}
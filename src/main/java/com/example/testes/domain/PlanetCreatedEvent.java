@@ -0,0 +1,19 @@
+package com.example.testes.domain;
+
+/*
+ * Publicado pelo PlanetService depois que um planeta é salvo, para que as
+ * estruturas mantidas em memória possam ser atualizadas.
+ */
+public class PlanetCreatedEvent {
+
+    private final Planet planet;
+
+    public PlanetCreatedEvent(Planet planet) {
+        this.planet = planet;
+    }
+
+    public Planet getPlanet() {
+        return planet;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.example.testes.domain;
+
+import java.util.List;
+
+/*
+ * Resultado de uma busca em lote: os planetas encontrados e as chaves
+ * (ids e nomes) que não correspondem a nenhum planeta.
+ */
+public class PlanetLookup {
+
+    private final List<Planet> planets;
+    private final List<Long> missingIds;
+    private final List<String> missingNames;
+
+    public PlanetLookup(List<Planet> planets, List<Long> missingIds, List<String> missingNames) {
+        this.planets = planets;
+        this.missingIds = missingIds;
+        this.missingNames = missingNames;
+    }
+
+    public List<Planet> getPlanets() {
+        return planets;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public List<String> getMissingNames() {
+        return missingNames;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.example.testes.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/*
+ * Expurgo dos planetas removidos logicamente. Roda em segundo plano e apaga as
+ * linhas em lotes de planets.purge.batch-size, cada lote em sua própria
+ * transação curta, com uma pausa entre os lotes para não disputar o banco com
+ * as requisições. Cada execução apaga no máximo planets.purge.max-batches
+ * lotes; o que sobrar fica para a próxima. Só são apagados planetas removidos
+ * há mais de planets.purge.retention.
+ */
+@Component
+@ConditionalOnProperty(name = "planets.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class PlanetPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetPurger.class);
+
+    private final PlanetRepository planetRepository;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration pause;
+    private final Duration retention;
+
+    private final AtomicLong purged = new AtomicLong();
+
+    public PlanetPurger(PlanetRepository planetRepository,
+            @Value("${planets.purge.batch-size:500}") int batchSize,
+            @Value("${planets.purge.max-batches:100}") int maxBatches,
+            @Value("${planets.purge.pause:100ms}") Duration pause,
+            @Value("${planets.purge.retention:0s}") Duration retention) {
+        this.planetRepository = planetRepository;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pause = pause;
+        this.retention = retention;
+    }
+
+    @Scheduled(initialDelayString = "${planets.purge.interval:PT1M}", fixedDelayString = "${planets.purge.interval:PT1M}")
+    public void purge() {
+        Instant before = Instant.now().minus(retention);
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Long> ids = planetRepository.findRemovedIds(before, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += planetRepository.purgeByIdIn(ids);
+            if (ids.size() < batchSize || !pause()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            purged.addAndGet(total);
+            log.info("purged {} removed planets", total);
+        }
+    }
+
+    private boolean pause() {
+        if (pause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public long getPurged() {
+        return purged.get();
+    }
+
+}
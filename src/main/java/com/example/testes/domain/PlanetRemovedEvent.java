@@ -0,0 +1,18 @@
+package com.example.testes.domain;
+
+/*
+ * Publicado pelo PlanetService depois que um planeta é removido.
+ */
+public class PlanetRemovedEvent {
+
+    private final Long id;
+
+    public PlanetRemovedEvent(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+}
@@ -1,17 +1,118 @@
 package com.example.testes.domain;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface PlanetRepository extends CrudRepository<Planet, Long>, QueryByExampleExecutor<Planet> {
+import jakarta.persistence.QueryHint;
 
-    Optional<Planet> findByName(String name);
+public interface PlanetRepository
+        extends CrudRepository<Planet, Long>, QueryByExampleExecutor<Planet>, PlanetRepositoryCustom {
+
+    /*
+     * A busca por id é declarada como consulta para que o filtro de planetas
+     * removidos não dependa de como o Hibernate carrega entidades pela chave.
+     */
+    @Override
+    @Query("select p from Planet p where p.id = :id and p.deletedAt is null")
+    Optional<Planet> findById(@Param("id") Long id);
+
+    Optional<Planet> findByNormalizedName(String normalizedName);
+
+    List<Planet> findByNormalizedNameIn(Collection<String> normalizedNames);
 
     @Override
     <S extends Planet> List<S> findAll(Example<S> example);
 
+    /*
+     * Contagens agrupadas feitas pelo próprio banco (GROUP BY). Os filtros seguem
+     * a mesma regra do QueryBuilder: comparação exata, ignorando maiúsculas.
+     */
+    @Query("select new com.example.testes.domain.PlanetCount(p.climate, count(p)) from Planet p"
+            + " where (:climate is null or lower(p.climate) = lower(:climate))"
+            + " and (:terrain is null or lower(p.terrain) = lower(:terrain))"
+            + " group by p.climate")
+    List<PlanetCount> countByClimate(@Param("climate") String climate, @Param("terrain") String terrain);
+
+    @Query("select new com.example.testes.domain.PlanetCount(p.terrain, count(p)) from Planet p"
+            + " where (:climate is null or lower(p.climate) = lower(:climate))"
+            + " and (:terrain is null or lower(p.terrain) = lower(:terrain))"
+            + " group by p.terrain")
+    List<PlanetCount> countByTerrain(@Param("climate") String climate, @Param("terrain") String terrain);
+
+    @Query("select new com.example.testes.domain.IdRange(min(p.id), max(p.id)) from Planet p")
+    IdRange findIdRange();
+
+    /*
+     * Primeiros planetas com id maior ou igual a fromId, em ordem de id. A busca
+     * parte de um ponto do índice da chave primária, sem ordenar a tabela.
+     */
+    @Query("select p from Planet p where p.id >= :fromId order by p.id")
+    List<Planet> findFromId(@Param("fromId") Long fromId, Pageable pageable);
+
+    /*
+     * Ids dos planetas que atendem aos filtros, sem carregar as entidades. A
+     * amostra com filtros sorteia entre eles e carrega só os sorteados. O cast
+     * dá tipo ao filtro nulo, que o PostgreSQL receberia como bytea em lower().
+     */
+    @Query("select p.id from Planet p"
+            + " where (cast(:climate as String) is null or lower(p.climate) = lower(cast(:climate as String)))"
+            + " and (cast(:terrain as String) is null or lower(p.terrain) = lower(cast(:terrain as String)))")
+    List<Long> findMatchingIds(@Param("climate") String climate, @Param("terrain") String terrain);
+
+    /*
+     * Remoção lógica em um único UPDATE, sem carregar a entidade. O nome
+     * normalizado é apagado para que outro planeta possa usar o mesmo nome.
+     * Devolve 0 quando o planeta não existe ou já foi removido.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Planet p set p.deletedAt = :deletedAt, p.normalizedName = null"
+            + " where p.id = :id and p.deletedAt is null")
+    int softDeleteById(@Param("id") Long id, @Param("deletedAt") Instant deletedAt);
+
+    /*
+     * Consultas nativas do expurgo: as únicas que enxergam os planetas removidos.
+     */
+    @Query(value = "select id from planets where deleted_at < :before order by id limit :limit", nativeQuery = true)
+    List<Long> findRemovedIds(@Param("before") Instant before, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from planets where id in (:ids) and deleted_at is not null", nativeQuery = true)
+    int purgeByIdIn(@Param("ids") Collection<Long> ids);
+
+    /*
+     * Uma faixa de ids da varredura particionada, lida pelo índice da chave primária.
+     * Usa a mesma projeção do streamAll, para que as duas formas de varredura
+     * devolvam os mesmos planetas.
+     */
+    @Query("select new com.example.testes.domain.Planet(p.id, p.name, p.climate, p.terrain, p.version) from Planet p"
+            + " where p.id between :fromId and :toId order by p.id")
+    List<Planet> findByIdBetweenOrderById(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /*
+     * A projeção por construtor devolve planetas fora do contexto de persistência,
+     * então a sessão não acumula as entidades lidas durante o Stream.
+     * O fetch size faz o driver ler o cursor em blocos, em vez de carregar a
+     * tabela inteira (exige uma transação aberta no PostgreSQL).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.testes.domain.Planet(p.id, p.name, p.climate, p.terrain, p.version) from Planet p"
+            + " order by p.id")
+    Stream<Planet> streamAll();
+
 }
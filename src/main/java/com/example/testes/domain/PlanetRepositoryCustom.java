@@ -0,0 +1,30 @@
+package com.example.testes.domain;
+
+import java.util.List;
+
+public interface PlanetRepositoryCustom {
+
+    /*
+     * Atualiza apenas as colunas informadas (não nulas) e incrementa a versão,
+     * sem carregar a entidade. Quando expectedVersion é informado, a linha só é
+     * alterada se ainda estiver nessa versão. Devolve a quantidade de linhas
+     * alteradas: 0 indica planeta inexistente (ou removido) ou versão desatualizada.
+     */
+    int updatePartially(Long id, String name, String climate, String terrain, Long expectedVersion);
+
+    /*
+     * Insere os planetas de uma só vez, sem passar pelo contexto de persistência,
+     * e preenche o id e a versão de cada um. No PostgreSQL os ids são reservados
+     * na sequência e as linhas vão por COPY; nos demais bancos, por um INSERT em
+     * lote (JDBC batch). Os nomes não podem existir ainda: um nome repetido
+     * falha o lote inteiro com DataIntegrityViolationException.
+     */
+    void insertAll(List<Planet> planets);
+
+    /*
+     * Somente PostgreSQL: ids dos planetas cujo nome normalizado é parecido com
+     * o termo (pg_trgm) ou começa com ele, do mais para o menos relevante.
+     */
+    List<Long> searchIdsByName(String normalizedTerm, int limit);
+
+}
@@ -0,0 +1,161 @@
+package com.example.testes.domain;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/*
+ * Implementação do fragmento PlanetRepositoryCustom. O Spring Data encontra esta
+ * classe pelo sufixo Impl e a combina com o PlanetRepository.
+ * O UPDATE é montado com a Criteria API porque as colunas alteradas variam a
+ * cada chamada. A inserção em lote usa a conexão JDBC da sessão, pois o
+ * Hibernate não agrupa INSERTs de entidades com id IDENTITY.
+ */
+class PlanetRepositoryCustomImpl implements PlanetRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updatePartially(Long id, String name, String climate, String terrain, Long expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Planet> update = builder.createCriteriaUpdate(Planet.class);
+        Root<Planet> planet = update.from(Planet.class);
+
+        if (name != null) {
+            update.set(planet.<String>get("name"), name);
+            update.set(planet.<String>get("normalizedName"), Planet.normalizeName(name));
+        }
+        if (climate != null) {
+            update.set(planet.<String>get("climate"), climate);
+        }
+        if (terrain != null) {
+            update.set(planet.<String>get("terrain"), terrain);
+        }
+        update.set(planet.<Long>get("version"), builder.sum(planet.<Long>get("version"), 1L));
+
+        Predicate where = builder.and(builder.equal(planet.get("id"), id), builder.isNull(planet.get("deletedAt")));
+        if (expectedVersion != null) {
+            where = builder.and(where, builder.equal(planet.get("version"), expectedVersion));
+        }
+        update.where(where);
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Planet> planets) {
+        if (planets.isEmpty()) {
+            return;
+        }
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copy(connection, planets);
+            } else {
+                batchInsert(connection, planets);
+            }
+        });
+        planets.forEach(planet -> planet.setVersion(0L));
+    }
+
+    /*
+     * O operador % e o LIKE por prefixo usam o índice GIN de trigramas (V6); o
+     * limite de similaridade é o padrão do pg_trgm (0.3), o mesmo do índice em
+     * memória. Nome igual vem antes de prefixo, que vem antes de parecido.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> searchIdsByName(String normalizedTerm, int limit) {
+        String prefix = normalizedTerm.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<Number> ids = entityManager.createNativeQuery("select id from planets"
+                + " where deleted_at is null"
+                + " and (normalized_name % :term or normalized_name like :prefix escape '\\')"
+                + " order by normalized_name = :term desc, normalized_name like :prefix escape '\\' desc,"
+                + " similarity(normalized_name, :term) desc, normalized_name, id"
+                + " limit :limit")
+                .setParameter("term", normalizedTerm)
+                .setParameter("prefix", prefix)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    private static void copy(Connection connection, List<Planet> planets) throws SQLException {
+        List<Long> ids = new ArrayList<>(planets.size());
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select nextval(pg_get_serial_sequence('planets', 'id')) from generate_series(1, ?)")) {
+            statement.setInt(1, planets.size());
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    ids.add(result.getLong(1));
+                }
+            }
+        }
+        ids.sort(null);
+
+        StringBuilder rows = new StringBuilder(planets.size() * 64);
+        for (int i = 0; i < planets.size(); i++) {
+            Planet planet = planets.get(i);
+            planet.setId(ids.get(i));
+            rows.append(planet.getId()).append(',')
+                    .append(csv(planet.getName())).append(',')
+                    .append(csv(Planet.normalizeName(planet.getName()))).append(',')
+                    .append(csv(planet.getClimate())).append(',')
+                    .append(csv(planet.getTerrain())).append('\n');
+        }
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY planets (id, name, normalized_name, climate, terrain) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(rows.toString()));
+        } catch (IOException ex) {
+            throw new SQLException("COPY into planets failed", ex);
+        }
+    }
+
+    private static void batchInsert(Connection connection, List<Planet> planets) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "insert into planets (name, normalized_name, climate, terrain) values (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (Planet planet : planets) {
+                statement.setString(1, planet.getName());
+                statement.setString(2, Planet.normalizeName(planet.getName()));
+                statement.setString(3, planet.getClimate());
+                statement.setString(4, planet.getTerrain());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                for (Planet planet : planets) {
+                    if (!keys.next()) {
+                        throw new SQLException("missing generated id for " + planet.getName());
+                    }
+                    planet.setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+}
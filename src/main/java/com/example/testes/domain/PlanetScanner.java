@@ -0,0 +1,140 @@
+package com.example.testes.domain;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * Varredura de todos os planetas em ordem de id.
+ *
+ * Com planets.scan.parallelism igual a 1, é um único cursor em uma única
+ * conexão. Com valores maiores, o intervalo de ids é dividido em faixas de
+ * planets.scan.partition-size ids, e até parallelism faixas são consultadas ao
+ * mesmo tempo, cada uma em sua própria transação (e portanto em sua própria
+ * conexão). As faixas são entregues ao consumidor na ordem dos ids, na thread
+ * de quem chamou; no máximo parallelism faixas ficam em memória ao mesmo tempo.
+ *
+ * As faixas rodam em um executor próprio, com parallelism threads e sem fila,
+ * e não no executor da aplicação: quem chama a varredura (a exportação em
+ * StreamingResponseBody, o PlanetAsyncService) já ocupa uma thread daquele
+ * executor enquanto espera as faixas, e dividir o mesmo pool poderia deixá-lo
+ * sem threads para elas. Quando todas as threads de varredura estão ocupadas
+ * (várias varreduras ao mesmo tempo), a faixa é lida na própria thread de quem
+ * chamou, então uma varredura nunca espera por outra.
+ */
+@Component
+public class PlanetScanner implements DisposableBean {
+
+    private final PlanetRepository planetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AsyncTaskExecutor executor;
+    private final int parallelism;
+    private final long partitionSize;
+
+    @Autowired
+    public PlanetScanner(PlanetRepository planetRepository, PlatformTransactionManager transactionManager,
+            @Value("${planets.scan.parallelism:1}") int parallelism,
+            @Value("${planets.scan.partition-size:5000}") long partitionSize) {
+        this(planetRepository, transactionManager, parallelism > 1 ? scanExecutor(parallelism) : null,
+                parallelism, partitionSize);
+    }
+
+    PlanetScanner(PlanetRepository planetRepository, PlatformTransactionManager transactionManager,
+            AsyncTaskExecutor executor, int parallelism, long partitionSize) {
+        if (parallelism < 1 || partitionSize < 1) {
+            throw new IllegalArgumentException("planets.scan.parallelism and planets.scan.partition-size must be positive");
+        }
+        this.planetRepository = planetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.partitionSize = partitionSize;
+    }
+
+    private static ThreadPoolTaskExecutor scanExecutor(int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("planet-scan-");
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    public void scan(Consumer<Planet> consumer) {
+        if (!isParallel()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Planet> planets = planetRepository.streamAll()) {
+                    planets.forEach(consumer);
+                }
+            });
+            return;
+        }
+
+        IdRange range = transactionTemplate.execute(status -> planetRepository.findIdRange());
+        if (range == null || range.isEmpty()) {
+            return;
+        }
+
+        Deque<Future<List<Planet>>> pending = new ArrayDeque<>();
+        long next = range.getMin();
+        boolean submittedAll = false;
+        try {
+            while (!submittedAll || !pending.isEmpty()) {
+                while (!submittedAll && pending.size() < parallelism) {
+                    long fromId = next;
+                    long toId = range.getMax() - fromId < partitionSize ? range.getMax() : fromId + partitionSize - 1;
+                    FutureTask<List<Planet>> task = new FutureTask<>(() -> transactionTemplate
+                            .execute(status -> planetRepository.findByIdBetweenOrderById(fromId, toId)));
+                    try {
+                        executor.execute(task);
+                    } catch (TaskRejectedException ex) {
+                        task.run();
+                    }
+                    pending.add(task);
+                    submittedAll = toId == range.getMax();
+                    next = toId + 1;
+                }
+                pending.poll().get().forEach(consumer);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning planets", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pending.forEach(task -> task.cancel(true));
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.example.testes.domain;
+
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+ * Busca de nomes tolerante a prefixos e erros de digitação.
+ *
+ * No PostgreSQL a busca é feita pelo banco, com o índice GIN do pg_trgm sobre
+ * o nome normalizado (ver PlanetRepository.searchIdsByName), e vale para todas
+ * as instâncias da aplicação.
+ *
+ * Nos demais bancos (o H2 do perfil embarcado), usa um índice de trigramas
+ * mantido em memória: cada nome é quebrado em trigramas (como no pg_trgm) e
+ * cada trigrama aponta para os ids que o contêm. Uma busca só visita os
+ * planetas que compartilham ao menos um trigrama com o termo, e o ranking usa a
+ * similaridade entre os conjuntos de trigramas. Ele é carregado na primeira
+ * busca e atualizado pelos eventos do service, depois do commit da transação
+ * que os publicou.
+ *
+ * Os dois caminhos comparam o nome normalizado por Planet.normalizeName (NFKC
+ * e minúsculas), sem remover acentos: "Yavín" e "Yavin" são nomes diferentes,
+ * apenas parecidos, no H2 e no PostgreSQL.
+ */
+@Component
+public class PlanetSearchIndex {
+
+    static final double MIN_RANK = 0.3;
+
+    private static final Comparator<Match> BY_RANK = Comparator
+            .comparingDouble((Match match) -> match.rank)
+            .thenComparing(match -> match.name, Comparator.reverseOrder())
+            .thenComparing(match -> match.id, Comparator.reverseOrder());
+
+    private final PlanetRepository planetRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean inDatabase;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public PlanetSearchIndex(PlanetRepository planetRepository, PlatformTransactionManager transactionManager,
+            DataSource dataSource) throws MetaDataAccessException {
+        this(planetRepository, transactionManager, "PostgreSQL".equals(JdbcUtils.commonDatabaseName(
+                JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName))));
+    }
+
+    PlanetSearchIndex(PlanetRepository planetRepository, PlatformTransactionManager transactionManager,
+            boolean inDatabase) {
+        this.planetRepository = planetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.inDatabase = inDatabase;
+    }
+
+    /*
+     * Devolve os ids dos planetas mais relevantes para o termo, do mais para o
+     * menos relevante. Nome igual ao termo vem antes de nome que começa com o
+     * termo, que vem antes de nome apenas parecido.
+     */
+    public List<Long> search(String query, int limit) {
+        String term = normalize(query);
+        if (term.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (inDatabase) {
+            return transactionTemplate.execute(
+                    status -> planetRepository.searchIdsByName(Planet.normalizeName(query.trim()), limit));
+        }
+        ensureLoaded();
+
+        Set<String> termGrams = trigrams(term);
+        PriorityQueue<Match> best = new PriorityQueue<>(BY_RANK);
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String gram : termGrams) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    for (Long id : ids) {
+                        shared.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+
+            for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+                Entry entry = entries.get(candidate.getKey());
+                int common = candidate.getValue();
+                double rank = (double) common / (termGrams.size() + entry.grams - common);
+                if (entry.name.equals(term)) {
+                    rank += 2;
+                } else if (entry.name.startsWith(term)) {
+                    rank += 1;
+                }
+                if (rank >= MIN_RANK) {
+                    best.add(new Match(candidate.getKey(), entry.name, rank));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(BY_RANK.reversed());
+        return matches.stream().map(match -> match.id).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCreated(PlanetCreatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                add(event.getPlanet().getId(), event.getPlanet().getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUpdated(PlanetUpdatedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                add(event.getPlanet().getId(), event.getPlanet().getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoved(PlanetRemovedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                remove(event.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<Planet> planets = planetRepository.streamAll()) {
+                        planets.forEach(planet -> add(planet.getId(), planet.getName()));
+                    }
+                });
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Long id, String name) {
+        remove(id);
+        String normalized = normalize(name);
+        Set<String> grams = trigrams(normalized);
+        entries.put(id, new Entry(normalized, grams.size()));
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : trigrams(entry.name)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    /*
+     * O mesmo valor da coluna normalized_name, com pontuação e espaços reduzidos
+     * a um espaço, que separa as palavras como no pg_trgm.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return Planet.normalizeName(value)
+                .replaceAll("[^\\p{L}\\p{M}\\p{N}]+", " ")
+                .trim();
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final int grams;
+
+        private Entry(String name, int grams) {
+            this.name = name;
+            this.grams = grams;
+        }
+
+    }
+
+    private static final class Match {
+
+        private final long id;
+        private final String name;
+        private final double rank;
+
+        private Match(long id, String name, double rank) {
+            this.id = id;
+            this.name = name;
+            this.rank = rank;
+        }
+
+    }
+
+}
@@ -1,30 +1,250 @@
 package com.example.testes.domain;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/*
+ * As leituras por id, por nome e as listagens passam por caches (limitados em
+ * tamanho e tempo de vida, ver spring.cache.*). Qualquer escrita invalida os
+ * três caches inteiros: escritas são raras e uma listagem pode mudar com a
+ * criação, alteração ou remoção de qualquer planeta.
+ * Os caches são locais a cada instância: a invalidação só alcança a instância
+ * que fez a escrita, e as demais podem servir o planeta antigo (ou removido)
+ * até o tempo de vida expirar, que por isso é curto.
+ */
 @Service
 public class PlanetService {
 
+    public static final String PLANETS_CACHE = "planets";
+    public static final String PLANETS_BY_NAME_CACHE = "planetsByName";
+    public static final String PLANET_LISTS_CACHE = "planetLists";
+
+    static final int LOOKUP_CHUNK_SIZE = 500;
+    static final int MAX_SEARCH_RESULTS = 50;
+    static final int MAX_SAMPLE_SIZE = 50;
+    static final int SAMPLE_ATTEMPTS_PER_PLANET = 3;
+
     private PlanetRepository planetRepository;
+    private PlanetSearchIndex searchIndex;
+    private ApplicationEventPublisher eventPublisher;
+    private PlanetScanner planetScanner;
+    private CacheManager cacheManager;
 
-    public PlanetService(PlanetRepository planetRepository) {
+    public PlanetService(PlanetRepository planetRepository, PlanetSearchIndex searchIndex,
+            ApplicationEventPublisher eventPublisher, PlanetScanner planetScanner, CacheManager cacheManager) {
         this.planetRepository = planetRepository;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.planetScanner = planetScanner;
+        this.cacheManager = cacheManager;
     }
 
+    @CacheEvict(cacheNames = { PLANETS_CACHE, PLANETS_BY_NAME_CACHE, PLANET_LISTS_CACHE }, allEntries = true)
     public Planet create(Planet planet) {
-        return planetRepository.save(planet);
+        Planet createdPlanet = planetRepository.save(planet);
+        eventPublisher.publishEvent(new PlanetCreatedEvent(createdPlanet));
+        return createdPlanet;
+    }
+
+    /*
+     * Criação em lote, usada pela importação: uma transação, um único comando de
+     * inserção no banco (ver PlanetRepository.insertAll) e uma invalidação dos
+     * caches para o lote inteiro. Planetas cujo nome já existe, no banco ou
+     * antes no próprio lote, não são gravados e são devolvidos ao chamador.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = { PLANETS_CACHE, PLANETS_BY_NAME_CACHE, PLANET_LISTS_CACHE }, allEntries = true)
+    public List<Planet> createAll(List<Planet> planets) {
+        Set<String> taken = new HashSet<>();
+        for (List<String> chunk : chunks(planets.stream().map(planet -> Planet.normalizeName(planet.getName()))
+                .distinct().toList())) {
+            planetRepository.findByNormalizedNameIn(chunk)
+                    .forEach(planet -> taken.add(Planet.normalizeName(planet.getName())));
+        }
+
+        List<Planet> accepted = new ArrayList<>(planets.size());
+        List<Planet> duplicates = new ArrayList<>();
+        for (Planet planet : planets) {
+            if (taken.add(Planet.normalizeName(planet.getName()))) {
+                accepted.add(planet);
+            } else {
+                duplicates.add(planet);
+            }
+        }
+        planetRepository.insertAll(accepted);
+        accepted.forEach(planet -> eventPublisher.publishEvent(new PlanetCreatedEvent(planet)));
+        return duplicates;
+    }
+
+    /*
+     * Atualização parcial: somente os atributos não nulos são gravados, em um
+     * único UPDATE que não precisa carregar o planeta antes. Com expectedVersion,
+     * a escrita só acontece se ninguém alterou o planeta desde que o cliente o
+     * leu; caso contrário é lançada ObjectOptimisticLockingFailureException,
+     * sem bloquear a linha para os demais.
+     * O UPDATE devolve apenas a quantidade de linhas, então o planeta é lido em
+     * seguida, pela chave e na mesma transação: a resposta precisa dos atributos
+     * não enviados e da nova versão (ETag), e o evento, do nome atual.
+     */
+    @Transactional
+    @CacheEvict(cacheNames = { PLANETS_CACHE, PLANETS_BY_NAME_CACHE, PLANET_LISTS_CACHE }, allEntries = true)
+    public Planet update(Long id, String name, String climate, String terrain, Long expectedVersion) {
+        boolean changed = name != null || climate != null || terrain != null;
+        if (changed && planetRepository.updatePartially(id, name, climate, terrain, expectedVersion) == 0) {
+            if (!planetRepository.existsById(id)) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            throw new ObjectOptimisticLockingFailureException(Planet.class, id);
+        }
+
+        Planet planet = planetRepository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+        if (!changed) {
+            if (expectedVersion != null && !expectedVersion.equals(planet.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Planet.class, id);
+            }
+            return planet;
+        }
+        eventPublisher.publishEvent(new PlanetUpdatedEvent(planet));
+        return planet;
     }
 
+    @Cacheable(PLANETS_CACHE)
     public Optional<Planet> get(Long id) {
         return planetRepository.findById(id);
     }
 
+    @Cacheable(cacheNames = PLANETS_BY_NAME_CACHE, key = "T(com.example.testes.domain.Planet).normalizeName(#p0)")
     public Optional<Planet> getByName(String name) {
-        return planetRepository.findByName(name);
+        String normalizedName = Planet.normalizeName(name);
+        return planetRepository.findByNormalizedName(normalizedName);
+    }
+
+    /*
+     * Busca em lote por ids e nomes. As chaves já presentes nos caches do get e
+     * do getByName são atendidas por eles (inclusive as que o cache sabe que não
+     * existem), e só as demais vão ao banco, que as guarda nos caches em seguida.
+     * Cada bloco de até LOOKUP_CHUNK_SIZE chaves vira um único SELECT com IN, bem
+     * abaixo do limite de 32767 parâmetros por statement do driver do PostgreSQL.
+     * Os nomes são comparados pela forma normalizada, como no getByName. Os
+     * planetas são devolvidos na ordem em que as chaves foram pedidas, sem repetição.
+     */
+    public PlanetLookup getAll(Collection<Long> ids, Collection<String> names) {
+        Cache idCache = cacheManager.getCache(PLANETS_CACHE);
+        List<Long> distinctIds = distinct(ids);
+        Map<Long, Planet> byId = new HashMap<>();
+        for (List<Long> chunk : chunks(fromCache(idCache, distinctIds, byId))) {
+            for (Planet planet : planetRepository.findAllById(chunk)) {
+                byId.put(planet.getId(), planet);
+                toCache(idCache, planet.getId(), planet);
+            }
+        }
+
+        Cache nameCache = cacheManager.getCache(PLANETS_BY_NAME_CACHE);
+        Map<String, String> normalizedNames = new LinkedHashMap<>();
+        for (String name : distinct(names)) {
+            normalizedNames.putIfAbsent(Planet.normalizeName(name), name);
+        }
+        Map<String, Planet> byName = new HashMap<>();
+        for (List<String> chunk : chunks(fromCache(nameCache, normalizedNames.keySet(), byName))) {
+            for (Planet planet : planetRepository.findByNormalizedNameIn(chunk)) {
+                String normalizedName = Planet.normalizeName(planet.getName());
+                byName.put(normalizedName, planet);
+                toCache(nameCache, normalizedName, planet);
+            }
+        }
+
+        Map<Long, Planet> found = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Planet planet = byId.get(id);
+            if (planet == null) {
+                missingIds.add(id);
+            } else {
+                found.put(planet.getId(), planet);
+            }
+        }
+        List<String> missingNames = new ArrayList<>();
+        for (Map.Entry<String, String> name : normalizedNames.entrySet()) {
+            Planet planet = byName.get(name.getKey());
+            if (planet == null) {
+                missingNames.add(name.getValue());
+            } else {
+                found.putIfAbsent(planet.getId(), planet);
+            }
+        }
+        return new PlanetLookup(new ArrayList<>(found.values()), missingIds, missingNames);
+    }
+
+    /*
+     * Copia para found os planetas em cache e devolve as chaves que precisam ir
+     * ao banco. Uma entrada com valor nulo é um planeta que o cache já sabe que
+     * não existe (o Optional vazio do get), e não volta ao banco.
+     */
+    private static <K> List<K> fromCache(Cache cache, Collection<K> keys, Map<K, Planet> found) {
+        if (cache == null) {
+            return new ArrayList<>(keys);
+        }
+        List<K> misses = new ArrayList<>();
+        for (K key : keys) {
+            ValueWrapper cached = cache.get(key);
+            if (cached == null) {
+                misses.add(key);
+            } else if (cached.get() != null) {
+                found.put(key, (Planet) cached.get());
+            }
+        }
+        return misses;
+    }
+
+    private static void toCache(Cache cache, Object key, Planet planet) {
+        if (cache != null) {
+            cache.putIfAbsent(key, planet);
+        }
+    }
+
+    /*
+     * Busca por nome tolerante a prefixos e erros de digitação. O
+     * PlanetSearchIndex devolve os ids já ordenados por relevância (pelo pg_trgm
+     * no PostgreSQL, pelo índice em memória nos demais bancos), e os planetas
+     * são carregados com um único SELECT ... IN.
+     */
+    public List<Planet> search(String query, int limit) {
+        List<Long> ids = searchIndex.search(query, Math.min(limit, MAX_SEARCH_RESULTS));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Planet> byId = new HashMap<>();
+        planetRepository.findAllById(ids).forEach(planet -> byId.put(planet.getId(), planet));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 
     /*
@@ -33,14 +253,177 @@ public class PlanetService {
      * ao passar esta no método makeQuery.
      * Além disso, é necessário sobreescrever o método findAll no repositório,
      * passando o objeto Example.
+     * Sem filtros e com a varredura particionada ligada, a tabela é lida em
+     * faixas de ids consultadas em paralelo.
      */
+    @Cacheable(PLANET_LISTS_CACHE)
     public List<Planet> list(String climate, String terrain) {
+        return findList(climate, terrain);
+    }
+
+    /*
+     * Recalcula a listagem e substitui a que está no cache, sem esperar que ela
+     * expire. O PlanetWarmup usa este método para manter quentes os filtros mais
+     * pedidos enquanto a aplicação roda.
+     */
+    @CachePut(PLANET_LISTS_CACHE)
+    public List<Planet> refreshList(String climate, String terrain) {
+        return findList(climate, terrain);
+    }
+
+    private List<Planet> findList(String climate, String terrain) {
+        // A mesma lista em cache é entregue a todos os chamadores, então ela é imutável.
+        if (climate == null && terrain == null && planetScanner.isParallel()) {
+            List<Planet> planets = new ArrayList<>();
+            planetScanner.scan(planets::add);
+            return List.copyOf(planets);
+        }
         Example<Planet> query = QueryBuilder.makeQuery(new Planet(climate, terrain));
-        return planetRepository.findAll(query);
+        return List.copyOf(planetRepository.findAll(query));
+    }
+
+    /*
+     * Contagem de planetas por clima ou terreno, com os mesmos filtros do list.
+     * O agrupamento é feito no banco; quando tokens é verdadeiro, valores
+     * compostos como "grasslands, mountains" são separados e somados por termo,
+     * o que custa apenas O(valores distintos) em memória.
+     */
+    public List<PlanetCount> count(PlanetAttribute attribute, boolean tokens, String climate, String terrain) {
+        List<PlanetCount> counts = attribute == PlanetAttribute.CLIMATE
+                ? planetRepository.countByClimate(climate, terrain)
+                : planetRepository.countByTerrain(climate, terrain);
+
+        if (tokens) {
+            Map<String, Long> byToken = new HashMap<>();
+            for (PlanetCount count : counts) {
+                for (String token : count.getValue().split(",")) {
+                    String key = token.trim().toLowerCase(Locale.ROOT);
+                    if (!key.isEmpty()) {
+                        byToken.merge(key, count.getTotal(), Long::sum);
+                    }
+                }
+            }
+            counts = byToken.entrySet().stream()
+                    .map(entry -> new PlanetCount(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+
+        return counts.stream()
+                .sorted(Comparator.comparing(PlanetCount::getTotal).reversed()
+                        .thenComparing(PlanetCount::getValue))
+                .toList();
+    }
+
+    /*
+     * Amostra aleatória de até n planetas distintos, com os mesmos filtros do list.
+     * Nenhum dos caminhos usa ORDER BY random(), que lê e ordena a tabela inteira.
+     *
+     * Sem filtros, cada sorteio escolhe um id entre o menor e o maior e busca o
+     * primeiro planeta a partir dele pelo índice da chave primária (recomeçando
+     * do início se não houver planeta depois do id sorteado). O custo depende de
+     * n, e não do tamanho da tabela; em troca, um planeta logo depois de um
+     * "buraco" de ids removidos é sorteado com mais frequência.
+     *
+     * Com filtros, saltar por id percorreria a tabela pela chave até achar um
+     * planeta que atenda aos filtros, e favoreceria os que vêm depois de longas
+     * sequências que não atendem. Por isso a amostra lê só os ids dos planetas
+     * que atendem (uma consulta, sem ordenar nem carregar as entidades), sorteia
+     * n deles em memória e carrega os sorteados com um único findAllById: a
+     * escolha é uniforme e são dois statements, qualquer que seja n.
+     */
+    public List<Planet> sample(int n, String climate, String terrain) {
+        int size = Math.min(n, MAX_SAMPLE_SIZE);
+        if (size <= 0) {
+            return List.of();
+        }
+        if (climate != null || terrain != null) {
+            return sampleMatching(size, climate, terrain);
+        }
+
+        IdRange range = planetRepository.findIdRange();
+        if (range == null || range.isEmpty()) {
+            return List.of();
+        }
+
+        Pageable first = PageRequest.of(0, 1);
+        Map<Long, Planet> sample = new LinkedHashMap<>();
+        for (int attempt = 0; attempt < size * SAMPLE_ATTEMPTS_PER_PLANET && sample.size() < size; attempt++) {
+            long fromId = ThreadLocalRandom.current().nextLong(range.getMin(), range.getMax() + 1);
+            List<Planet> found = planetRepository.findFromId(fromId, first);
+            if (found.isEmpty()) {
+                found = planetRepository.findFromId(range.getMin(), first);
+            }
+            if (found.isEmpty()) {
+                break;
+            }
+            sample.putIfAbsent(found.get(0).getId(), found.get(0));
+        }
+        return new ArrayList<>(sample.values());
     }
 
+    private List<Planet> sampleMatching(int size, String climate, String terrain) {
+        List<Long> matching = planetRepository.findMatchingIds(climate, terrain);
+        if (matching.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (int index : randomIndexes(Math.min(size, matching.size()), matching.size())) {
+            ids.add(matching.get(index));
+        }
+        // Um planeta removido entre as duas consultas encurta a amostra.
+        List<Planet> sample = new ArrayList<>(ids.size());
+        planetRepository.findAllById(ids).forEach(sample::add);
+        Collections.shuffle(sample, ThreadLocalRandom.current());
+        return sample;
+    }
+
+    /*
+     * k posições distintas entre 0 e bound - 1 (algoritmo de Floyd).
+     */
+    static Set<Integer> randomIndexes(int k, int bound) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> indexes = new HashSet<>();
+        for (int j = bound - k; j < bound; j++) {
+            int index = random.nextInt(j + 1);
+            indexes.add(indexes.contains(index) ? j : index);
+        }
+        return indexes;
+    }
+
+    /*
+     * Percorre todos os planetas, em ordem de id, entregando um por vez ao
+     * consumidor. Cada leitura abre a própria transação (ver PlanetScanner).
+     */
+    public void export(Consumer<Planet> consumer) {
+        planetScanner.scan(consumer);
+    }
+
+    /*
+     * Remoção lógica: um único UPDATE marca o planeta como removido e libera o
+     * nome; a linha é apagada depois, em lote, pelo PlanetPurger.
+     */
+    @CacheEvict(cacheNames = { PLANETS_CACHE, PLANETS_BY_NAME_CACHE, PLANET_LISTS_CACHE }, allEntries = true)
     public void remove(Long id) {
-        planetRepository.deleteById(id);
+        int removed = planetRepository.softDeleteById(id, Instant.now());
+        if (removed == 0) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        eventPublisher.publishEvent(new PlanetRemovedEvent(id));
+    }
+
+    private static <T> List<T> distinct(Collection<T> keys) {
+        if (keys == null) {
+            return List.of();
+        }
+        return keys.stream().filter(Objects::nonNull).distinct().toList();
+    }
+
+    private static <T> List<List<T>> chunks(List<T> keys) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += LOOKUP_CHUNK_SIZE) {
+            chunks.add(keys.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, keys.size())));
+        }
+        return chunks;
     }
 
 }
@@ -0,0 +1,18 @@
+package com.example.testes.domain;
+
+/*
+ * Publicado pelo PlanetService depois que um planeta é alterado.
+ */
+public class PlanetUpdatedEvent {
+
+    private final Planet planet;
+
+    public PlanetUpdatedEvent(Planet planet) {
+        this.planet = planet;
+    }
+
+    public Planet getPlanet() {
+        return planet;
+    }
+
+}
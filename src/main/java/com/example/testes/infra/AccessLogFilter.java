@@ -0,0 +1,58 @@
+package com.example.testes.infra;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Uma linha de log por requisição (instante, método, caminho, status e
+ * duração), enviada ao AsyncLogWriter de acesso. Sem o writer
+ * (planets.log.access.enabled=false), o filtro apenas segue a cadeia.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final AsyncLogWriter accessLog;
+
+    public AccessLogFilter(@Qualifier(AsyncLogConfig.ACCESS_LOG) ObjectProvider<AsyncLogWriter> accessLog) {
+        this.accessLog = accessLog.getIfAvailable();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (accessLog == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StringBuilder line = new StringBuilder(96)
+                    .append(Instant.now())
+                    .append(' ').append(request.getMethod())
+                    .append(' ').append(request.getRequestURI());
+            if (request.getQueryString() != null) {
+                line.append('?').append(request.getQueryString());
+            }
+            line.append(' ').append(response.getStatus())
+                    .append(' ').append(RequestTimings.millis(System.nanoTime() - start)).append("ms");
+            accessLog.append(line.toString());
+        }
+    }
+
+}
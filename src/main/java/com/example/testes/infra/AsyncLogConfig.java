@@ -0,0 +1,72 @@
+package com.example.testes.infra;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/*
+ * Logs de acesso e de SQL gravados de forma assíncrona em planets.log.dir.
+ * Substituem o spring.jpa.show-sql, que escreve cada SQL no stdout dentro da
+ * thread da requisição.
+ */
+@Configuration
+public class AsyncLogConfig {
+
+    public static final String ACCESS_LOG = "accessLogWriter";
+    public static final String SQL_LOG = "sqlLogWriter";
+
+    private final Path dir;
+    private final int capacity;
+    private final AsyncLogWriter.OverflowPolicy overflowPolicy;
+    private final DataSize maxFileSize;
+    private final int maxFiles;
+
+    public AsyncLogConfig(
+            @Value("${planets.log.dir:logs}") String dir,
+            @Value("${planets.log.capacity:8192}") int capacity,
+            @Value("${planets.log.overflow-policy:DROP}") AsyncLogWriter.OverflowPolicy overflowPolicy,
+            @Value("${planets.log.max-file-size:10MB}") DataSize maxFileSize,
+            @Value("${planets.log.max-files:5}") int maxFiles) {
+        this.dir = Path.of(dir);
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+    }
+
+    @Bean(name = ACCESS_LOG, initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "planets.log.access.enabled", havingValue = "true")
+    public AsyncLogWriter accessLogWriter() {
+        return writer("access");
+    }
+
+    @Bean(name = SQL_LOG, initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "planets.log.sql.enabled", havingValue = "true")
+    public AsyncLogWriter sqlLogWriter() {
+        return writer("sql");
+    }
+
+    /*
+     * O proxy de DataSource só é registrado quando alguém usa o que ele observa
+     * (Server-Timing ou log de SQL), para não custar nada no restante dos casos.
+     */
+    @Bean
+    @ConditionalOnExpression(ServerTimingConfig.TIMING_ENABLED + " or ${planets.log.sql.enabled:false}")
+    static JdbcInstrumentationPostProcessor jdbcInstrumentationPostProcessor(
+            @Qualifier(SQL_LOG) ObjectProvider<AsyncLogWriter> sqlLog) {
+        return new JdbcInstrumentationPostProcessor(sqlLog);
+    }
+
+    private AsyncLogWriter writer(String name) {
+        return new AsyncLogWriter(name, dir.resolve(name + ".log"), capacity, overflowPolicy,
+                maxFileSize.toBytes(), maxFiles);
+    }
+
+}
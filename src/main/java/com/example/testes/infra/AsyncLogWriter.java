@@ -0,0 +1,223 @@
+package com.example.testes.infra;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Log em arquivo escrito fora da thread da requisição.
+ *
+ * As linhas entram em um buffer circular de tamanho fixo sem locks: cada
+ * produtor reserva uma posição com um CAS na sequência e publica a linha na
+ * posição reservada; uma única thread escritora consome as posições em ordem
+ * e grava em lotes, com um flush por lote. Quando o arquivo passa de
+ * maxFileSize ele é renomeado para .1 (e os anteriores para .2, .3, ...),
+ * mantendo no máximo maxFiles arquivos antigos.
+ *
+ * Com o buffer cheio, a política DROP descarta a linha (e conta o descarte),
+ * sem nunca atrasar a requisição; BLOCK estaciona a thread em intervalos curtos
+ * até a escritora liberar espaço. Depois do close, ou se a escritora parar por
+ * erro de E/S, as linhas são descartadas em ambas as políticas.
+ */
+public final class AsyncLogWriter implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 50_000;
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final String name;
+    private final Path file;
+    private final OverflowPolicy policy;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+    private OutputStream out;
+    private long fileSize;
+
+    /*
+     * A capacidade é arredondada para a próxima potência de 2, para que a
+     * posição de cada sequência seja calculada com uma máscara.
+     */
+    public AsyncLogWriter(String name, Path file, int capacity, OverflowPolicy policy, long maxFileSize,
+            int maxFiles) {
+        this.name = name;
+        this.file = file;
+        this.policy = policy;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "planet-log-" + name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /*
+     * Enfileira uma linha (sem a quebra de linha). Devolve false quando a linha
+     * foi descartada por falta de espaço.
+     */
+    public boolean append(String line) {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                if (policy == OverflowPolicy.DROP || !running) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), line);
+                return true;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            open();
+            while (running || consumed < claimed.get()) {
+                int batch = 0;
+                String line;
+                while (batch < MAX_BATCH && (line = slots.get((int) (consumed & mask))) != null) {
+                    slots.set((int) (consumed & mask), null);
+                    consumed = consumed + 1;
+                    write(line);
+                    batch++;
+                }
+                if (batch > 0) {
+                    out.flush();
+                    written.addAndGet(batch);
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            log.error("log writer {} stopped: could not write to {}", name, file, ex);
+            running = false;
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void write(String line) throws IOException {
+        if (fileSize >= maxFileSize) {
+            roll();
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write(LINE_SEPARATOR);
+        fileSize += bytes.length + LINE_SEPARATOR.length;
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        fileSize = Files.exists(file) ? Files.size(file) : 0;
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        Files.deleteIfExists(rolled(maxFiles));
+        for (int index = maxFiles - 1; index >= 1; index--) {
+            if (Files.exists(rolled(index))) {
+                Files.move(rolled(index), rolled(index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                log.warn("could not close {}", file, ex);
+            }
+        }
+    }
+
+    /*
+     * Para a thread escritora depois de gravar o que já estava no buffer,
+     * esperando no máximo CLOSE_TIMEOUT para não prender o desligamento.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writer;
+        }
+        if (thread != null) {
+            thread.join(CLOSE_TIMEOUT.toMillis());
+            if (thread.isAlive()) {
+                log.warn("log writer {} did not finish within {}; {} lines not written", name, CLOSE_TIMEOUT,
+                        claimed.get() - consumed);
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+}
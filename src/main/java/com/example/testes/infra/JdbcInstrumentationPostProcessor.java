@@ -0,0 +1,208 @@
+package com.example.testes.infra;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+ * Envolve o DataSource em um DelegatingDataSource (que continua expondo o pool
+ * original por unwrap e fechando-o no desligamento) cujas Connections e
+ * Statements são proxies que observam cada SQL executado no driver:
+ * 1) o tempo de execução é registrado na fase "sql" da requisição (Server-Timing);
+ * 2) quando o log de SQL está ligado, o SQL, os parâmetros e o tempo vão para o
+ *    AsyncLogWriter, que grava o arquivo fora da thread da requisição.
+ */
+class JdbcInstrumentationPostProcessor implements BeanPostProcessor {
+
+    static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final ObjectProvider<AsyncLogWriter> sqlLogProvider;
+    private volatile AsyncLogWriter sqlLog;
+    private volatile boolean sqlLogResolved;
+
+    JdbcInstrumentationPostProcessor(ObjectProvider<AsyncLogWriter> sqlLogProvider) {
+        this.sqlLogProvider = sqlLogProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+            return new InstrumentedDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    private final class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+        private InstrumentedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return proxy(Connection.class, super.getConnection(), JdbcInstrumentationPostProcessor.this::connection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return proxy(Connection.class, super.getConnection(username, password),
+                    JdbcInstrumentationPostProcessor.this::connection);
+        }
+
+        /*
+         * O Spring fecha o bean que ficou no contexto, que é este; o pool
+         * (HikariDataSource) é fechado por aqui.
+         */
+        @Override
+        public void close() throws Exception {
+            if (obtainTargetDataSource() instanceof AutoCloseable target) {
+                target.close();
+            }
+        }
+
+    }
+
+    /*
+     * O writer é buscado no primeiro uso: o BeanPostProcessor é criado antes
+     * dos demais beans.
+     */
+    private AsyncLogWriter sqlLog() {
+        if (!sqlLogResolved) {
+            sqlLog = sqlLogProvider.getIfAvailable();
+            sqlLogResolved = true;
+        }
+        return sqlLog;
+    }
+
+    private Object connection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        if (result instanceof Statement statement) {
+            String sql = method.getName().startsWith("prepare") && args != null && args.length > 0
+                    && args[0] instanceof String prepared ? prepared : null;
+            return proxyStatement(statementType(statement), statement, new StatementHandler(sql, sqlLog())::handle);
+        }
+        return result;
+    }
+
+    private static Class<? extends Statement> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) {
+            return CallableStatement.class;
+        }
+        if (statement instanceof PreparedStatement) {
+            return PreparedStatement.class;
+        }
+        return Statement.class;
+    }
+
+    /*
+     * Estado de um Statement: o SQL preparado e os parâmetros atuais. Um
+     * Statement é usado por uma thread de cada vez, então não há sincronização.
+     */
+    private static final class StatementHandler {
+
+        private final String sql;
+        private final AsyncLogWriter log;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private final List<String> batch = new ArrayList<>();
+
+        private StatementHandler(String sql, AsyncLogWriter log) {
+            this.sql = sql;
+            this.log = log;
+        }
+
+        private Object handle(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (log != null) {
+                capture(name, args);
+            }
+            if (!name.startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+            long begin = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                long nanos = System.nanoTime() - begin;
+                RequestTimings.record(RequestTimings.SQL, nanos);
+                if (log != null) {
+                    log.append(line(name, args, nanos));
+                    batch.clear();
+                }
+            }
+        }
+
+        private void capture(String name, Object[] args) {
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if ("addBatch".equals(name)) {
+                batch.add(args != null && args.length > 0 ? String.valueOf(args[0]) : parameters().toString());
+            }
+        }
+
+        private String line(String name, Object[] args, long nanos) {
+            StringBuilder line = new StringBuilder(128)
+                    .append(Instant.now())
+                    .append(" took=").append(RequestTimings.millis(nanos)).append("ms")
+                    .append(" sql=").append(args != null && args.length > 0 && args[0] instanceof String executed
+                            ? executed : sql);
+            if ("executeBatch".equals(name) || "executeLargeBatch".equals(name)) {
+                line.append(" batch=").append(batch);
+            } else if (!parameters.isEmpty()) {
+                line.append(" params=").append(parameters());
+            }
+            return line.toString();
+        }
+
+        private List<String> parameters() {
+            List<String> values = new ArrayList<>(parameters.size());
+            for (Object value : parameters.values()) {
+                String text = value instanceof byte[] bytes ? "<" + bytes.length + " bytes>" : String.valueOf(value);
+                values.add(text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+            }
+            return values;
+        }
+
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T extends Statement> T proxyStatement(Class<T> type, Statement statement, Handler handler) {
+        return proxy(type, type.cast(statement), handler);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, invocationHandler));
+    }
+
+}
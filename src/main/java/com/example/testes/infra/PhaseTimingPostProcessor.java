@@ -0,0 +1,47 @@
+package com.example.testes.infra;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.annotation.AnnotationClassFilter;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Service;
+
+/*
+ * Mede uma fase da requisição em volta das chamadas aos beans selecionados,
+ * sem que o código de domínio conheça o RequestTimings: os repositórios
+ * contam como "db" e os services como "service" (o tempo do service fora do
+ * repositório, como a montagem do Example, aparece como "build"). O advisor é
+ * acrescentado ao proxy que o bean já tiver (cache, transação, Spring Data),
+ * por fora dos demais.
+ */
+class PhaseTimingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    PhaseTimingPostProcessor(ClassFilter classFilter, String phase) {
+        MethodInterceptor interceptor = invocation -> {
+            if (RequestTimings.current() == null) {
+                return invocation.proceed();
+            }
+            long begin = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                RequestTimings.record(phase, System.nanoTime() - begin);
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new ComposablePointcut(classFilter), interceptor);
+        setBeforeExistingAdvisors(true);
+    }
+
+    static PhaseTimingPostProcessor repositories() {
+        return new PhaseTimingPostProcessor(new RootClassFilter(Repository.class), RequestTimings.DB);
+    }
+
+    static PhaseTimingPostProcessor services() {
+        return new PhaseTimingPostProcessor(new AnnotationClassFilter(Service.class), RequestTimings.SERVICE);
+    }
+
+}
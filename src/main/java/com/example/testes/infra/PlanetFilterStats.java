@@ -0,0 +1,150 @@
+package com.example.testes.infra;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Conta quantas vezes cada combinação de filtros de GET /planets foi pedida.
+ * As contagens são gravadas em arquivo no desligamento e lidas na subida
+ * seguinte, para que o aquecimento saiba quais listagens pré-calcular. Ao
+ * serem lidas, as contagens antigas valem metade, então os filtros que
+ * deixaram de ser usados perdem espaço para os recentes.
+ */
+@Component
+public class PlanetFilterStats implements HandlerInterceptor {
+
+    static final int MAX_FILTERS = 1000;
+
+    private final ConcurrentMap<HotFilter, LongAdder> counts = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("GET".equals(request.getMethod())) {
+            record(request.getParameter("climate"), request.getParameter("terrain"));
+        }
+        return true;
+    }
+
+    public void record(String climate, String terrain) {
+        HotFilter filter = new HotFilter(clean(climate), clean(terrain));
+        LongAdder count = counts.get(filter);
+        if (count == null) {
+            if (counts.size() >= MAX_FILTERS) {
+                return;
+            }
+            count = counts.computeIfAbsent(filter, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /*
+     * Os filtros mais pedidos, do mais para o menos frequente.
+     */
+    public List<HotFilter> top(int limit) {
+        return counts.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<HotFilter, LongAdder> entry) -> entry.getValue().sum())
+                        .reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void load(Path file) throws IOException {
+        if (!Files.isReadable(file)) {
+            return;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 3) {
+                continue;
+            }
+            try {
+                long count = Long.parseLong(fields[0]) / 2;
+                HotFilter filter = new HotFilter(clean(fields[1]), clean(fields[2]));
+                if (count > 0 && (counts.containsKey(filter) || counts.size() < MAX_FILTERS)) {
+                    counts.computeIfAbsent(filter, key -> new LongAdder()).add(count);
+                }
+            } catch (NumberFormatException ex) {
+                // Linha corrompida: ignora e segue com as demais.
+            }
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, "planets-hot-filters", ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (HotFilter filter : top(MAX_FILTERS)) {
+                out.write(counts.get(filter).sum() + "\t" + Objects.toString(filter.getClimate(), "") + "\t"
+                        + Objects.toString(filter.getTerrain(), ""));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * Os valores são guardados como chegaram, pois são a chave do cache de
+     * listagens; valores que não cabem em uma linha do arquivo são ignorados.
+     */
+    private static String clean(String value) {
+        if (value == null || value.isEmpty() || value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            return null;
+        }
+        return value;
+    }
+
+    public static final class HotFilter {
+
+        private final String climate;
+        private final String terrain;
+
+        HotFilter(String climate, String terrain) {
+            this.climate = climate;
+            this.terrain = terrain;
+        }
+
+        public String getClimate() {
+            return climate;
+        }
+
+        public String getTerrain() {
+            return terrain;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HotFilter other
+                    && Objects.equals(climate, other.climate)
+                    && Objects.equals(terrain, other.terrain);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(climate, terrain);
+        }
+
+    }
+
+}
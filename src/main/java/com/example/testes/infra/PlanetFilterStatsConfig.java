@@ -0,0 +1,21 @@
+package com.example.testes.infra;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class PlanetFilterStatsConfig implements WebMvcConfigurer {
+
+    private final PlanetFilterStats filterStats;
+
+    public PlanetFilterStatsConfig(PlanetFilterStats filterStats) {
+        this.filterStats = filterStats;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(filterStats).addPathPatterns("/planets");
+    }
+
+}
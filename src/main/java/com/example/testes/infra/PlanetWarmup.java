@@ -0,0 +1,142 @@
+package com.example.testes.infra;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Aquecimento executado na subida, antes de a aplicação ser marcada como
+ * pronta para receber tráfego (os ApplicationRunner rodam antes do
+ * ReadinessState.ACCEPTING_TRAFFIC). Ele:
+ * 1) carrega a listagem completa e, a partir dela, os caches por id e por nome;
+ * 2) pré-calcula as listagens dos filtros mais pedidos na execução anterior;
+ * 3) repete as leituras, a busca por nome e a serialização em JSON para que o
+ *    JIT compile os caminhos quentes antes das primeiras requisições.
+ * Os caches expiram em expireAfterWrite (30s): as entradas por id e por nome
+ * só cobrem o começo do tráfego e depois voltam a ser carregadas sob demanda.
+ * As listagens dos filtros mais pedidos continuam quentes porque são
+ * recalculadas a cada planets.warmup.refresh-interval, menor que a expiração.
+ * A busca não tem o que pré-carregar no PostgreSQL (ela vai ao índice pg_trgm
+ * do banco); no H2 a chamada também monta o índice em memória.
+ * Uma falha no aquecimento é registrada em log e não impede a subida.
+ */
+@Component
+@ConditionalOnProperty(name = "planets.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class PlanetWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetWarmup.class);
+
+    static final int SERIALIZED_LIST_SIZE = 100;
+
+    private final PlanetService planetService;
+    private final PlanetFilterStats filterStats;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final Path filtersFile;
+    private final int hotFilters;
+    private final int iterations;
+
+    public PlanetWarmup(PlanetService planetService, PlanetFilterStats filterStats, CacheManager cacheManager,
+            ObjectMapper objectMapper,
+            @Value("${planets.warmup.filters-file:planets-hot-filters.tsv}") String filtersFile,
+            @Value("${planets.warmup.hot-filters:10}") int hotFilters,
+            @Value("${planets.warmup.iterations:200}") int iterations) {
+        this.planetService = planetService;
+        this.filterStats = filterStats;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        this.filtersFile = Path.of(filtersFile);
+        this.hotFilters = hotFilters;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            filterStats.load(filtersFile);
+
+            List<Planet> planets = planetService.list(null, null);
+            Cache byId = cacheManager.getCache(PlanetService.PLANETS_CACHE);
+            Cache byName = cacheManager.getCache(PlanetService.PLANETS_BY_NAME_CACHE);
+            for (Planet planet : planets) {
+                if (byId != null) {
+                    byId.putIfAbsent(planet.getId(), planet);
+                }
+                if (byName != null) {
+                    byName.putIfAbsent(Planet.normalizeName(planet.getName()), planet);
+                }
+            }
+
+            List<List<Planet>> lists = new ArrayList<>();
+            for (PlanetFilterStats.HotFilter filter : filterStats.top(hotFilters)) {
+                lists.add(planetService.list(filter.getClimate(), filter.getTerrain()));
+            }
+
+            if (!planets.isEmpty()) {
+                Planet sample = planets.get(0);
+                planetService.search(sample.getName(), 1);
+                for (int i = 0; i < iterations; i++) {
+                    planetService.get(sample.getId());
+                    planetService.getByName(sample.getName());
+                    objectMapper.writeValueAsBytes(sample);
+                    for (List<Planet> list : lists) {
+                        objectMapper.writeValueAsBytes(list.subList(0, Math.min(list.size(), SERIALIZED_LIST_SIZE)));
+                    }
+                }
+            }
+
+            log.info("warm-up finished in {} ms: {} planets cached, {} hot filters precomputed",
+                    (System.nanoTime() - start) / 1_000_000, planets.size(), lists.size());
+        } catch (Exception ex) {
+            log.warn("warm-up failed after {} ms, starting with cold caches",
+                    (System.nanoTime() - start) / 1_000_000, ex);
+        }
+    }
+
+    /*
+     * Recalcula as listagens dos filtros mais pedidos até aqui (execução anterior
+     * e tráfego atual) antes que expirem. Uma escrita que chegue durante o
+     * recálculo pode ser coberta por uma lista lida antes dela; essa lista é
+     * substituída no próximo recálculo, dentro do mesmo atraso aceito para o cache.
+     */
+    @Scheduled(initialDelayString = "${planets.warmup.refresh-interval:PT20S}",
+            fixedDelayString = "${planets.warmup.refresh-interval:PT20S}")
+    public void refreshHotFilters() {
+        try {
+            for (PlanetFilterStats.HotFilter filter : filterStats.top(hotFilters)) {
+                planetService.refreshList(filter.getClimate(), filter.getTerrain());
+            }
+        } catch (Exception ex) {
+            log.warn("could not refresh hot filters", ex);
+        }
+    }
+
+    @PreDestroy
+    public void saveFilterStats() {
+        try {
+            filterStats.save(filtersFile);
+        } catch (IOException ex) {
+            log.warn("could not save hot filters to {}", filtersFile, ex);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.example.testes.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+
+/*
+ * Tempos das fases de uma requisição (validação, montagem da query, banco,
+ * serialização), guardados na thread que atende a requisição.
+ * Quando a medição está desligada não existe instância na thread, e time()
+ * apenas executa a ação: o custo é a leitura de um ThreadLocal.
+ */
+public final class RequestTimings {
+
+    public static final String VALIDATE = "validate";
+    public static final String SERVICE = "service";
+    public static final String BUILD = "build";
+    public static final String DB = "db";
+    public static final String SQL = "sql";
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final boolean header;
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long serializationStart;
+
+    private RequestTimings(boolean header) {
+        this.header = header;
+    }
+
+    static RequestTimings begin(boolean header) {
+        RequestTimings timings = new RequestTimings(header);
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T time(String phase, Supplier<T> action) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return action.get();
+        }
+        long begin = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            timings.add(phase, System.nanoTime() - begin);
+        }
+    }
+
+    public static void time(String phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    static void record(String phase, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, nanos);
+        }
+    }
+
+    boolean isHeader() {
+        return header;
+    }
+
+    void markSerialization() {
+        if (serializationStart == 0) {
+            serializationStart = System.nanoTime();
+        }
+    }
+
+    private void add(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    /*
+     * Valor do cabeçalho Server-Timing. É escrito antes do corpo da resposta,
+     * então a serialização não aparece aqui; "app" é o tempo até o início dela.
+     * "hydrate" é o tempo do repositório fora do JDBC (montagem das entidades).
+     */
+    String toServerTiming() {
+        StringJoiner value = new StringJoiner(", ");
+        phases().forEach((phase, nanos) -> value.add(phase + ";dur=" + millis(nanos)));
+        value.add("app;dur=" + millis(elapsedUntilSerialization()));
+        return value.toString();
+    }
+
+    /*
+     * Linha de log estruturada (chave=valor), com a serialização e o total.
+     */
+    String toLog(String method, String path, int status) {
+        long end = System.nanoTime();
+        StringJoiner line = new StringJoiner(" ");
+        line.add("method=" + method).add("path=" + path).add("status=" + status);
+        phases().forEach((phase, nanos) -> line.add(phase + "=" + millis(nanos)));
+        if (serializationStart != 0) {
+            line.add("ser=" + millis(end - serializationStart));
+        }
+        line.add("total=" + millis(end - start));
+        return line.toString();
+    }
+
+    /*
+     * "service" inclui o repositório, então vira "build": o tempo do service
+     * fora dele. Do mesmo modo, "hydrate" é o tempo do repositório fora do JDBC.
+     */
+    private Map<String, Long> phases() {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        Long service = this.phases.get(SERVICE);
+        Long db = this.phases.get(DB);
+        if (service != null) {
+            phases.put(BUILD, Math.max(0, service - (db != null ? db : 0)));
+        }
+        this.phases.forEach((phase, nanos) -> {
+            if (!SERVICE.equals(phase)) {
+                phases.merge(phase, nanos, Long::sum);
+            }
+        });
+        Long sql = phases.get(SQL);
+        if (db != null && sql != null) {
+            phases.put("hydrate", Math.max(0, db - sql));
+        }
+        return phases;
+    }
+
+    private long elapsedUntilSerialization() {
+        return (serializationStart != 0 ? serializationStart : System.nanoTime()) - start;
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.example.testes.infra;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    static final String TIMING_ENABLED = "${planets.server-timing.enabled:false}"
+            + " or ${planets.server-timing.log-sample-rate:0} > 0";
+
+    private final LocalValidatorFactoryBean validator;
+
+    public ServerTimingConfig(LocalValidatorFactoryBean validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public Validator getValidator() {
+        return new TimedValidator(validator);
+    }
+
+    /*
+     * Os proxies de medição só são registrados quando alguém usa o resultado,
+     * para não custar nada no restante dos casos.
+     */
+    @Bean
+    @ConditionalOnExpression(TIMING_ENABLED)
+    static PhaseTimingPostProcessor repositoryTimingPostProcessor() {
+        return PhaseTimingPostProcessor.repositories();
+    }
+
+    @Bean
+    @ConditionalOnExpression(TIMING_ENABLED)
+    static PhaseTimingPostProcessor serviceTimingPostProcessor() {
+        return PhaseTimingPostProcessor.services();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.testes.infra;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * Liga a medição de fases por requisição. Com planets.server-timing.enabled as
+ * respostas recebem o cabeçalho Server-Timing; independente disso, uma fração
+ * das requisições (planets.server-timing.log-sample-rate) é registrada em log.
+ * Requisições fora da amostra seguem sem nenhuma medição.
+ */
+@Component
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final boolean enabled;
+    private final double logSampleRate;
+
+    public ServerTimingFilter(
+            @Value("${planets.server-timing.enabled:false}") boolean enabled,
+            @Value("${planets.server-timing.log-sample-rate:0}") double logSampleRate) {
+        this.enabled = enabled;
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean sampled = logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+        if (!enabled && !sampled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        RequestTimings timings = RequestTimings.begin(enabled);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTimings.end();
+            if (sampled) {
+                log.info("server-timing {}",
+                        timings.toLog(request.getMethod(), request.getRequestURI(), response.getStatus()));
+            }
+        }
+    }
+
+}
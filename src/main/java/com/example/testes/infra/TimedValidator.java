@@ -0,0 +1,32 @@
+package com.example.testes.infra;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+/*
+ * Envolve o validador do Spring MVC para registrar a fase "validate".
+ */
+class TimedValidator implements SmartValidator {
+
+    private final SmartValidator delegate;
+
+    TimedValidator(SmartValidator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        RequestTimings.time(RequestTimings.VALIDATE, () -> delegate.validate(target, errors));
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        RequestTimings.time(RequestTimings.VALIDATE, () -> delegate.validate(target, errors, validationHints));
+    }
+
+}
@@ -2,6 +2,7 @@ package com.example.testes.web;
 
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -32,6 +33,11 @@ public class GeneralExceptionHandler extends ResponseEntityExceptionHandler {
       return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
    }
 
+   @ExceptionHandler(OptimisticLockingFailureException.class)
+   private ResponseEntity<Object> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+   }
+
    @ExceptionHandler(EmptyResultDataAccessException.class)
    private ResponseEntity<Object> handleEmptyResultDataAccessException(EmptyResultDataAccessException ex) {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
@@ -0,0 +1,196 @@
+package com.example.testes.web;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.testes.domain.Planet;
+
+/*
+ * Respostas de POST /planets guardadas pelo cabeçalho Idempotency-Key.
+ * A repetição de uma requisição com a mesma chave devolve o planeta criado na
+ * primeira, sem passar pelo service nem pelo banco. A mesma chave com outro
+ * corpo é rejeitada com 422, e uma repetição enquanto a primeira ainda está em
+ * andamento recebe 409. Se a criação falhar, a chave é liberada.
+ *
+ * O armazenamento é limitado em quantidade de chaves e em tempo de vida; como
+ * todas as chaves vivem o mesmo tempo, a ordem de inserção é também a ordem de
+ * expiração, e a remoção sempre começa pelas mais antigas.
+ *
+ * Os contadores (e a taxa de repetição) são publicados por JMX como
+ * com.example.testes:type=IdempotencyStore quando spring.jmx.enabled=true.
+ */
+@Component
+@ManagedResource(objectName = "com.example.testes:type=IdempotencyStore")
+public class IdempotencyStore {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final int maxKeys;
+    private final long ttlNanos;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong mismatched = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public IdempotencyStore(
+            @Value("${planets.idempotency.max-keys:10000}") int maxKeys,
+            @Value("${planets.idempotency.ttl:10m}") Duration ttl) {
+        this.maxKeys = maxKeys;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    Outcome execute(String key, Planet request, Supplier<Planet> operation) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        long now = System.nanoTime();
+        Entry candidate = new Entry(key, fingerprint(request), now + ttlNanos);
+        Entry entry = entries.compute(key, (k, current) -> current == null || current.isExpired(now) ? candidate : current);
+
+        if (entry != candidate) {
+            if (!entry.fingerprint.equals(candidate.fingerprint)) {
+                mismatched.incrementAndGet();
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used with a different request");
+            }
+            if (!entry.response.isDone()) {
+                inFlight.incrementAndGet();
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is still being processed");
+            }
+            if (entry.response.isCompletedExceptionally()) {
+                // A primeira falhou e a chave já foi liberada: tenta de novo.
+                return execute(key, request, operation);
+            }
+            replayed.incrementAndGet();
+            return new Outcome(entry.response.join(), true);
+        }
+
+        order.add(candidate);
+        evict(now);
+        try {
+            Planet response = operation.get();
+            candidate.response.complete(response);
+            stored.incrementAndGet();
+            return new Outcome(response, false);
+        } catch (RuntimeException ex) {
+            // Sai também da fila: senão a entrada só seria solta quando chegasse à cabeça.
+            entries.remove(key, candidate);
+            order.remove(candidate);
+            candidate.response.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private void evict(long now) {
+        Entry head;
+        while ((head = order.peek()) != null && (head.isExpired(now) || entries.size() > maxKeys)) {
+            if (order.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    private static List<String> fingerprint(Planet request) {
+        return List.of(String.valueOf(request.getName()), String.valueOf(request.getClimate()),
+                String.valueOf(request.getTerrain()));
+    }
+
+    @ManagedAttribute
+    public int getSize() {
+        return entries.size();
+    }
+
+    int getQueued() {
+        return order.size();
+    }
+
+    @ManagedAttribute
+    public long getStored() {
+        return stored.get();
+    }
+
+    @ManagedAttribute
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    @ManagedAttribute
+    public long getMismatched() {
+        return mismatched.get();
+    }
+
+    @ManagedAttribute
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    /*
+     * Fração das requisições com chave que foram atendidas pelo armazenamento.
+     */
+    @ManagedAttribute
+    public double getReplayRate() {
+        long replays = replayed.get();
+        long total = replays + stored.get();
+        return total == 0 ? 0 : (double) replays / total;
+    }
+
+    static final class Outcome {
+
+        private final Planet planet;
+        private final boolean replayed;
+
+        private Outcome(Planet planet, boolean replayed) {
+            this.planet = planet;
+            this.replayed = replayed;
+        }
+
+        Planet getPlanet() {
+            return planet;
+        }
+
+        boolean isReplayed() {
+            return replayed;
+        }
+
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final List<String> fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<Planet> response = new CompletableFuture<>();
+
+        private Entry(String key, List<String> fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+    }
+
+}
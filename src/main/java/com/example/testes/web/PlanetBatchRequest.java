@@ -0,0 +1,37 @@
+package com.example.testes.web;
+
+import java.util.List;
+
+import jakarta.validation.constraints.Size;
+
+/*
+ * Corpo do POST /planets/batch. O limite de chaves mantém cada chamada com
+ * poucos blocos de consulta no service.
+ */
+public class PlanetBatchRequest {
+
+    static final int MAX_KEYS = 1000;
+
+    @Size(max = MAX_KEYS)
+    private List<Long> ids;
+
+    @Size(max = MAX_KEYS)
+    private List<String> names;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public void setNames(List<String> names) {
+        this.names = names;
+    }
+
+}
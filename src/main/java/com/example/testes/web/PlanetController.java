@@ -3,18 +3,25 @@ package com.example.testes.web;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetAttribute;
+import com.example.testes.domain.PlanetCount;
+import com.example.testes.domain.PlanetLookup;
 import com.example.testes.domain.PlanetService;
 
 import jakarta.validation.Valid;
@@ -23,13 +30,46 @@ import jakarta.validation.Valid;
 @RequestMapping("/planets")
 public class PlanetController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     @Autowired
     private PlanetService planetService;
 
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    /*
+     * Com o cabeçalho Idempotency-Key, novas tentativas do cliente recebem a
+     * mesma resposta 201 da primeira, sem criar o planeta de novo.
+     */
     @PostMapping
-    public ResponseEntity<Planet> create(@RequestBody @Valid Planet planet) {
-        Planet createdPlanet = planetService.create(planet);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdPlanet);
+    public ResponseEntity<Planet> create(
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody @Valid Planet planet) {
+        if (idempotencyKey == null) {
+            Planet createdPlanet = planetService.create(planet);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdPlanet);
+        }
+        IdempotencyStore.Outcome outcome = idempotencyStore.execute(idempotencyKey, planet,
+                () -> planetService.create(planet));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.isReplayed()))
+                .body(outcome.getPlanet());
+    }
+
+    /*
+     * O cabeçalho If-Match opcional carrega a versão lida pelo cliente (a mesma
+     * devolvida no ETag). Se o planeta mudou desde então, a resposta é 412.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Planet> update(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid PlanetPatch patch) {
+        Planet planet = planetService.update(id, patch.getName(), patch.getClimate(), patch.getTerrain(),
+                parseVersion(ifMatch));
+        return ResponseEntity.ok().eTag(String.valueOf(planet.getVersion())).body(planet);
     }
 
     @GetMapping("/{id}")
@@ -44,6 +84,20 @@ public class PlanetController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<Planet>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<Planet> planets = planetService.search(q, limit);
+        return ResponseEntity.ok(planets);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<PlanetLookup> getAll(@RequestBody @Valid PlanetBatchRequest request) {
+        PlanetLookup lookup = planetService.getAll(request.getIds(), request.getNames());
+        return ResponseEntity.ok(lookup);
+    }
+
     @GetMapping
     public ResponseEntity<List<Planet>> list(
             @RequestParam(required = false) String climate,
@@ -52,10 +106,51 @@ public class PlanetController {
         return ResponseEntity.ok(planets);
     }
 
+    @GetMapping("/random")
+    public ResponseEntity<List<Planet>> sample(
+            @RequestParam(defaultValue = "1") int n,
+            @RequestParam(required = false) String climate,
+            @RequestParam(required = false) String terrain) {
+        List<Planet> planets = planetService.sample(n, climate, terrain);
+        return ResponseEntity.ok(planets);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<PlanetCount>> count(
+            @RequestParam String groupBy,
+            @RequestParam(defaultValue = "false") boolean tokens,
+            @RequestParam(required = false) String climate,
+            @RequestParam(required = false) String terrain) {
+        PlanetAttribute attribute;
+        try {
+            attribute = PlanetAttribute.of(groupBy);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        List<PlanetCount> counts = planetService.count(attribute, tokens, climate, terrain);
+        return ResponseEntity.ok(counts);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> remove(@PathVariable("id") Long id) {
         planetService.remove(id);
         return ResponseEntity.noContent().build();
     }
 
+    private Long parseVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String version = ifMatch.trim();
+        if (version.startsWith("W/")) {
+            version = version.substring(2);
+        }
+        version = version.replace("\"", "");
+        try {
+            return Long.valueOf(version);
+        } catch (NumberFormatException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match version: " + ifMatch);
+        }
+    }
+
 }
@@ -0,0 +1,193 @@
+package com.example.testes.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.testes.domain.Planet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Formatos de arquivo aceitos na exportação e importação em massa.
+ * Ambos são lidos e escritos registro a registro, sem montar o arquivo em memória.
+ */
+enum PlanetFormat {
+
+    CSV("text/csv") {
+        @Override
+        PlanetWriter writer(Writer out, ObjectMapper objectMapper) throws IOException {
+            out.write("id,name,climate,terrain\n");
+            return planet -> {
+                out.write(planet.getId() == null ? "" : planet.getId().toString());
+                out.write(',');
+                out.write(escape(planet.getName()));
+                out.write(',');
+                out.write(escape(planet.getClimate()));
+                out.write(',');
+                out.write(escape(planet.getTerrain()));
+                out.write('\n');
+            };
+        }
+
+        @Override
+        PlanetReader reader(BufferedReader in, ObjectMapper objectMapper) throws IOException {
+            List<String> header = readRecord(in);
+            if (header == null) {
+                return () -> null;
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.keySet().containsAll(List.of("name", "climate", "terrain"))) {
+                throw new IllegalArgumentException("CSV header must contain the columns name, climate and terrain");
+            }
+            return () -> {
+                List<String> record = readRecord(in);
+                while (record != null && record.size() == 1 && record.get(0).isBlank()) {
+                    record = readRecord(in);
+                }
+                if (record == null) {
+                    return null;
+                }
+                if (record.size() != header.size()) {
+                    throw new IllegalArgumentException(
+                            "expected " + header.size() + " columns but found " + record.size());
+                }
+                return new Planet(
+                        record.get(columns.get("name")),
+                        record.get(columns.get("climate")),
+                        record.get(columns.get("terrain")));
+            };
+        }
+    },
+
+    NDJSON("application/x-ndjson") {
+        @Override
+        PlanetWriter writer(Writer out, ObjectMapper objectMapper) {
+            return planet -> {
+                out.write(objectMapper.writeValueAsString(planet));
+                out.write('\n');
+            };
+        }
+
+        @Override
+        PlanetReader reader(BufferedReader in, ObjectMapper objectMapper) {
+            return () -> {
+                String line = in.readLine();
+                while (line != null && line.isBlank()) {
+                    line = in.readLine();
+                }
+                if (line == null) {
+                    return null;
+                }
+                try {
+                    Planet planet = objectMapper.readValue(line, Planet.class);
+                    planet.setId(null);
+                    planet.setVersion(null);
+                    return planet;
+                } catch (JsonProcessingException ex) {
+                    throw new IllegalArgumentException("malformed JSON: " + ex.getOriginalMessage());
+                }
+            };
+        }
+    };
+
+    private final String contentType;
+
+    PlanetFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    abstract PlanetWriter writer(Writer out, ObjectMapper objectMapper) throws IOException;
+
+    /*
+     * Lê o cabeçalho, quando o formato possui um. Um cabeçalho inválido invalida
+     * o arquivo inteiro e lança IllegalArgumentException.
+     */
+    abstract PlanetReader reader(BufferedReader in, ObjectMapper objectMapper) throws IOException;
+
+    static PlanetFormat of(String value) {
+        for (PlanetFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format: " + value);
+    }
+
+    interface PlanetWriter {
+        void write(Planet planet) throws IOException;
+    }
+
+    interface PlanetReader {
+        /*
+         * Devolve o próximo planeta, ou null no fim do arquivo.
+         * Um registro malformado lança IllegalArgumentException, sem interromper a
+         * leitura dos registros seguintes.
+         */
+        Planet next() throws IOException;
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> readRecord(BufferedReader in) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            read = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            in.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!read) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
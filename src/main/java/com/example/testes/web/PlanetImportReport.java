@@ -0,0 +1,62 @@
+package com.example.testes.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Resultado de uma importação em massa. Apenas as primeiras linhas rejeitadas
+ * são detalhadas, para que um arquivo inteiro inválido não gere um relatório
+ * do mesmo tamanho do arquivo.
+ */
+public class PlanetImportReport {
+
+    static final int MAX_REPORTED_ROWS = 1000;
+
+    private long imported;
+    private long rejectedCount;
+    private final List<RejectedRow> rejected = new ArrayList<>();
+
+    void accept() {
+        imported++;
+    }
+
+    void reject(long row, List<String> errors) {
+        rejectedCount++;
+        if (rejected.size() < MAX_REPORTED_ROWS) {
+            rejected.add(new RejectedRow(row, errors));
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public List<RejectedRow> getRejected() {
+        return rejected;
+    }
+
+    public static class RejectedRow {
+
+        private final long row;
+        private final List<String> errors;
+
+        RejectedRow(long row, List<String> errors) {
+            this.row = row;
+            this.errors = errors;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.example.testes.web;
+
+import jakarta.validation.constraints.Pattern;
+
+/*
+ * Corpo do PATCH /planets/{id}. Atributos ausentes (nulos) não são alterados;
+ * os informados seguem a mesma regra do Planet e não podem ser vazios.
+ */
+public class PlanetPatch {
+
+    private static final String NOT_BLANK = ".*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    private String name;
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    private String climate;
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    private String terrain;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getClimate() {
+        return climate;
+    }
+
+    public void setClimate(String climate) {
+        this.climate = climate;
+    }
+
+    public String getTerrain() {
+        return terrain;
+    }
+
+    public void setTerrain(String terrain) {
+        this.terrain = terrain;
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.example.testes.web;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/*
+ * Exportação e importação em massa da tabela de planetas.
+ * Os registros trafegam um a um (ou em lotes de tamanho fixo, na importação)
+ * entre o banco e o corpo HTTP, então o tamanho do arquivo não influencia o
+ * consumo de memória da aplicação.
+ */
+@RestController
+@RequestMapping("/planets")
+public class PlanetTransferController {
+
+    private static final String GZIP = "gzip";
+
+    static final int IMPORT_BATCH_SIZE = 1000;
+
+    @Autowired
+    private PlanetService planetService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        PlanetFormat planetFormat = parseFormat(format);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = gzip ? new GZIPOutputStream(outputStream) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            PlanetFormat.PlanetWriter planetWriter = planetFormat.writer(writer, objectMapper);
+            try {
+                planetService.export(planet -> {
+                    try {
+                        planetWriter.write(planet);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.flush();
+            if (out instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(planetFormat.getContentType()))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.body(body);
+    }
+
+    /*
+     * Cada linha passa pela mesma validação de bean usada no POST /planets. As
+     * linhas válidas são gravadas em lotes de IMPORT_BATCH_SIZE, cada lote em
+     * uma transação (PlanetService.createAll). Linhas inválidas ou com nome
+     * repetido entram no relatório de rejeitadas sem interromper as demais.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<PlanetImportReport> importPlanets(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        PlanetFormat planetFormat = parseFormat(format);
+        InputStream in = GZIP.equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body) : body;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        PlanetFormat.PlanetReader planetReader;
+        try {
+            planetReader = planetFormat.reader(reader, objectMapper);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        PlanetImportReport report = new PlanetImportReport();
+        List<ImportRow> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long row = 0;
+        while (true) {
+            /* Conferido antes de cada leitura para valer também para as linhas rejeitadas pelo leitor. */
+            if (batch.size() >= IMPORT_BATCH_SIZE) {
+                importBatch(batch, report);
+            }
+            Planet planet;
+            row++;
+            try {
+                planet = planetReader.next();
+            } catch (IllegalArgumentException ex) {
+                batch.add(new ImportRow(row, null, List.of(ex.getMessage())));
+                continue;
+            }
+            if (planet == null) {
+                break;
+            }
+
+            Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+            batch.add(new ImportRow(row, planet, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .toList()));
+        }
+        importBatch(batch, report);
+        return ResponseEntity.ok(report);
+    }
+
+    /*
+     * Grava as linhas válidas do lote e registra o resultado de cada linha, na
+     * ordem do arquivo. Se outra escrita criar um dos nomes entre a verificação
+     * e a inserção, o lote inteiro é desfeito e refeito linha a linha.
+     */
+    private void importBatch(List<ImportRow> batch, PlanetImportReport report) {
+        List<Planet> planets = batch.stream().filter(ImportRow::isValid).map(ImportRow::getPlanet).toList();
+        Set<Planet> duplicates = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!planets.isEmpty()) {
+            try {
+                duplicates.addAll(planetService.createAll(planets));
+            } catch (DataIntegrityViolationException ex) {
+                for (Planet planet : planets) {
+                    try {
+                        planet.setId(null);
+                        planetService.create(planet);
+                    } catch (DataIntegrityViolationException duplicate) {
+                        duplicates.add(planet);
+                    }
+                }
+            }
+        }
+
+        for (ImportRow importRow : batch) {
+            if (!importRow.isValid()) {
+                report.reject(importRow.getRow(), importRow.getErrors());
+            } else if (duplicates.contains(importRow.getPlanet())) {
+                report.reject(importRow.getRow(), List.of("name: already exists"));
+            } else {
+                report.accept();
+            }
+        }
+        batch.clear();
+    }
+
+    /*
+     * Aceita gzip quando o cliente o lista (ou lista "*") com qvalue maior que
+     * zero; "gzip;q=0" recusa explicitamente.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                gzip = quality;
+            } else if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
+
+    private PlanetFormat parseFormat(String format) {
+        try {
+            return PlanetFormat.of(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    /*
+     * Uma linha lida do arquivo: o planeta, quando foi possível lê-lo, e os
+     * erros de leitura ou validação.
+     */
+    private static final class ImportRow {
+
+        private final long row;
+        private final Planet planet;
+        private final List<String> errors;
+
+        private ImportRow(long row, Planet planet, List<String> errors) {
+            this.row = row;
+            this.planet = planet;
+            this.errors = errors;
+        }
+
+        private long getRow() {
+            return row;
+        }
+
+        private Planet getPlanet() {
+            return planet;
+        }
+
+        private List<String> getErrors() {
+            return errors;
+        }
+
+        private boolean isValid() {
+            return planet != null && errors.isEmpty();
+        }
+
+    }
+
+}
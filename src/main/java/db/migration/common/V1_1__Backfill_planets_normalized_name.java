@@ -0,0 +1,144 @@
+package db.migration.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import com.example.testes.domain.Planet;
+
+/*
+ * Bancos criados pelo ddl-auto=update são marcados na versão 1 (ver
+ * spring.flyway.baseline-*), mas os criados pela versão original do projeto não
+ * têm o formato da V1: não há normalized_name, e o nome é único pela própria
+ * coluna name. Esta migração leva esses bancos ao formato da V1:
+ * - cria normalized_name e a preenche com Planet.normalizeName (NFKC e
+ *   minúsculas), a mesma regra da aplicação, que o SQL dos bancos não reproduz;
+ * - cria uk_planets_normalized_name, se a coluna ainda não tiver restrição única;
+ * - remove a restrição única sobre name, que impediria reusar o nome de um
+ *   planeta removido.
+ * Nos bancos que já têm a coluna (criados pela V1), ela só remove uma restrição
+ * antiga sobre name que ainda exista; por isso pode rodar fora de ordem nos
+ * bancos que já passaram da V1.1.
+ */
+public class V1_1__Backfill_planets_normalized_name extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!hasColumn(connection, "normalized_name")) {
+            execute(connection, "ALTER TABLE planets ADD COLUMN normalized_name VARCHAR(255)");
+            backfill(connection);
+            rejectRepeatedNames(connection);
+            execute(connection, "ALTER TABLE planets ALTER COLUMN normalized_name SET NOT NULL");
+        }
+
+        Map<String, List<String>> unique = uniqueConstraints(connection);
+        if (!unique.containsValue(List.of("normalized_name"))) {
+            execute(connection,
+                    "ALTER TABLE planets ADD CONSTRAINT uk_planets_normalized_name UNIQUE (normalized_name)");
+        }
+        for (Map.Entry<String, List<String>> constraint : unique.entrySet()) {
+            if (constraint.getValue().equals(List.of("name"))) {
+                execute(connection, "ALTER TABLE planets DROP CONSTRAINT \"" + constraint.getKey() + "\"");
+            }
+        }
+    }
+
+    private static void backfill(Connection connection) throws SQLException {
+        try (Statement select = connection.createStatement();
+                PreparedStatement update = connection.prepareStatement(
+                        "UPDATE planets SET normalized_name = ? WHERE id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            int pending = 0;
+            try (ResultSet rows = select.executeQuery("SELECT id, name FROM planets")) {
+                while (rows.next()) {
+                    update.setString(1, Planet.normalizeName(rows.getString(2)));
+                    update.setLong(2, rows.getLong(1));
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    /*
+     * A coluna name aceitava nomes que só diferem nas maiúsculas ("Tatooine" e
+     * "TATOOINE"). Eles não cabem na nova restrição, e escolher qual manter é uma
+     * decisão de quem opera o banco: a migração para com a lista dos nomes.
+     */
+    private static void rejectRepeatedNames(Connection connection) throws SQLException {
+        List<String> repeated = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT normalized_name FROM planets"
+                        + " GROUP BY normalized_name HAVING COUNT(*) > 1 ORDER BY normalized_name")) {
+            while (rows.next() && repeated.size() < 20) {
+                repeated.add(rows.getString(1));
+            }
+        }
+        if (!repeated.isEmpty()) {
+            throw new IllegalStateException("Planets with names that differ only in case or width must be renamed"
+                    + " or removed before migrating: " + repeated);
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM information_schema.columns"
+                + " WHERE lower(table_schema) = lower(?) AND lower(table_name) = 'planets'"
+                + " AND lower(column_name) = ?")) {
+            statement.setString(1, connection.getSchema());
+            statement.setString(2, column);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+
+    /*
+     * Restrições únicas da tabela, com as colunas de cada uma em ordem. Os nomes
+     * das restrições criadas pelo Hibernate são gerados, então são lidos do banco.
+     */
+    private static Map<String, List<String>> uniqueConstraints(Connection connection) throws SQLException {
+        Map<String, List<String>> constraints = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT tc.constraint_name, kcu.column_name"
+                + " FROM information_schema.table_constraints tc"
+                + " JOIN information_schema.key_column_usage kcu"
+                + " ON kcu.constraint_schema = tc.constraint_schema AND kcu.constraint_name = tc.constraint_name"
+                + " WHERE tc.constraint_type = 'UNIQUE' AND lower(tc.table_schema) = lower(?)"
+                + " AND lower(tc.table_name) = 'planets'"
+                + " ORDER BY tc.constraint_name, kcu.ordinal_position")) {
+            statement.setString(1, connection.getSchema());
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    constraints.computeIfAbsent(rows.getString(1), name -> new ArrayList<>())
+                            .add(rows.getString(2).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return constraints;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+}
@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS planets (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL,
+    climate VARCHAR(255) NOT NULL,
+    terrain VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_planets_normalized_name UNIQUE (normalized_name)
+);
@@ -0,0 +1 @@
+ALTER TABLE planets ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,5 @@
+-- Remocao logica: deleted_at marca o planeta como removido ate o expurgo em lote.
+-- O nome normalizado do planeta removido vira NULL, liberando o nome para reuso
+-- (a restricao UNIQUE aceita varios NULL).
+ALTER TABLE planets ADD COLUMN deleted_at TIMESTAMP WITH TIME ZONE;
+ALTER TABLE planets ALTER COLUMN normalized_name DROP NOT NULL;
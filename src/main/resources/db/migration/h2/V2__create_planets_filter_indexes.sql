@@ -0,0 +1,4 @@
+-- O H2 nao tem indices sobre expressoes; os indices simples ainda atendem o GROUP BY
+-- das estatisticas no perfil embarcado.
+CREATE INDEX IF NOT EXISTS idx_planets_climate ON planets (climate);
+CREATE INDEX IF NOT EXISTS idx_planets_terrain ON planets (terrain);
@@ -0,0 +1,2 @@
+-- O H2 nao tem indices parciais; o indice simples atende a busca do expurgo.
+CREATE INDEX IF NOT EXISTS idx_planets_deleted_at ON planets (deleted_at);
@@ -0,0 +1,2 @@
+-- O H2 nao tem indices de trigramas; no perfil embarcado a busca usa o PlanetSearchIndex em memoria.
+-- Este script so mantem a numeracao das versoes igual a do PostgreSQL.
@@ -0,0 +1,4 @@
+-- Os filtros de climate/terrain (QueryBuilder e estatisticas) comparam lower(coluna) = lower(?),
+-- entao os indices precisam ser sobre a mesma expressao para serem usados.
+CREATE INDEX IF NOT EXISTS idx_planets_climate_lower ON planets (lower(climate));
+CREATE INDEX IF NOT EXISTS idx_planets_terrain_lower ON planets (lower(terrain));
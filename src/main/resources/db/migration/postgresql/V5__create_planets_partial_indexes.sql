@@ -0,0 +1,8 @@
+-- Toda consulta da aplicacao filtra deleted_at IS NULL, entao os indices de filtro
+-- passam a ser parciais e nao carregam as linhas removidas.
+DROP INDEX IF EXISTS idx_planets_climate_lower;
+DROP INDEX IF EXISTS idx_planets_terrain_lower;
+CREATE INDEX IF NOT EXISTS idx_planets_climate_lower ON planets (lower(climate)) WHERE deleted_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_planets_terrain_lower ON planets (lower(terrain)) WHERE deleted_at IS NULL;
+-- O expurgo busca apenas as linhas removidas, que sao poucas perto da tabela.
+CREATE INDEX IF NOT EXISTS idx_planets_deleted_at ON planets (deleted_at) WHERE deleted_at IS NOT NULL;
@@ -0,0 +1,6 @@
+-- Busca de nomes tolerante a erros de digitacao (GET /planets/search) feita pelo banco:
+-- o indice GIN de trigramas atende tanto a similaridade (operador %) quanto o prefixo (LIKE 'x%').
+-- O pg_trgm e uma extensao confiavel a partir do PostgreSQL 13: o dono do banco pode cria-la.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_planets_normalized_name_trgm ON planets USING gin (normalized_name gin_trgm_ops)
+    WHERE deleted_at IS NULL;
@@ -1,19 +1,29 @@
 package com.example.testes;
 
+import com.example.testes.commom.QueryCounter;
 import com.example.testes.domain.Planet;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
 
+import jakarta.persistence.EntityManagerFactory;
+
 import java.util.List;
+import java.util.Map;
 
 import static com.example.testes.commom.PlanetConstant.*;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -27,6 +37,15 @@ class PlanetIT {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    @LocalServerPort
+    private int port;
+
     @Test
     void createPlanets_ReturnsCreated() {
 
@@ -60,6 +79,40 @@ class PlanetIT {
         assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    /*
+     * Orçamento de statements por requisição: a contagem das estatísticas do
+     * Hibernate inclui tudo que a aplicação executou para atender a chamada.
+     */
+    @Test
+    void getPlanet_ExecutesOneStatement() {
+        QueryCounter queryCounter = new QueryCounter(entityManagerFactory);
+
+        restTemplate.getForEntity("/planets/{id}", Planet.class, TATOOINE.getId());
+        restTemplate.getForEntity("/planets/name/{name}", Planet.class, TATOOINE.getName());
+
+        assertThat(queryCounter.getStatements()).isEqualTo(2);
+    }
+
+    @Test
+    void listPlanets_ExecutesOneStatement() {
+        QueryCounter queryCounter = new QueryCounter(entityManagerFactory);
+
+        restTemplate.getForEntity("/planets?climate={climate}", Planet[].class, ALDERAAN.getClimate());
+
+        assertThat(queryCounter.getStatements()).isEqualTo(1);
+    }
+
+    @Test
+    void samplePlanets_WithFilters_ExecutesTwoStatements() {
+        QueryCounter queryCounter = new QueryCounter(entityManagerFactory);
+
+        ResponseEntity<Planet[]> sut = restTemplate.getForEntity("/planets/random?n={n}&climate={climate}",
+                Planet[].class, 5, ALDERAAN.getClimate());
+
+        assertThat(sut.getBody()).contains(ALDERAAN);
+        assertThat(queryCounter.getStatements()).isEqualTo(2);
+    }
+
     @Test
     void getPlanetByName_ReturnsPlanet() {
         ResponseEntity<Planet> sut = restTemplate.getForEntity(
@@ -72,6 +125,17 @@ class PlanetIT {
         assertThat(sut.getBody()).isEqualTo(TATOOINE);
     }
 
+    @Test
+    void getPlanetByName_IgnoringCase_ReturnsPlanet() {
+        ResponseEntity<Planet> sut = restTemplate.getForEntity(
+                "/planets/name/{name}",
+                Planet.class,
+                TATOOINE.getName().toLowerCase());
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).isEqualTo(TATOOINE);
+    }
+
     @Test
     void listPlanets_ReturnsAllPlanets() {
         ResponseEntity<Planet[]> sut = restTemplate.getForEntity(
@@ -112,6 +176,119 @@ class PlanetIT {
         assertThat(sut.getBody()).hasSize(1);
     }
 
+    @Test
+    void searchPlanets_WithTypoAndPrefix_RanksByRelevance() {
+        ResponseEntity<Planet[]> typo = restTemplate.getForEntity("/planets/search?q={q}", Planet[].class, "Aldeeran");
+        ResponseEntity<Planet[]> prefix = restTemplate.getForEntity("/planets/search?q={q}", Planet[].class, "YAV");
+
+        assertThat(typo.getBody()).containsExactly(ALDERAAN);
+        assertThat(prefix.getBody()).containsExactly(YAVINIV);
+    }
+
+    @Test
+    void searchPlanets_AfterCreate_FindsNewPlanet() {
+        restTemplate.postForEntity("/planets", new Planet("Tatooine II", "arid", "desert"), Planet.class);
+
+        ResponseEntity<Planet[]> sut = restTemplate.getForEntity("/planets/search?q={q}", Planet[].class, "tatooine");
+
+        assertThat(sut.getBody()).extracting(Planet::getName).containsExactly("Tatooine", "Tatooine II");
+    }
+
+    @Test
+    void searchPlanets_WithAccent_MatchesOnlyBySimilarity() {
+        restTemplate.postForEntity("/planets", new Planet("Yavín", "temperate", "jungle"), Planet.class);
+
+        ResponseEntity<Planet[]> sut = restTemplate.getForEntity("/planets/search?q={q}", Planet[].class, "YAVIN");
+
+        assertThat(sut.getBody()).extracting(Planet::getName).containsExactly("Yavin IV", "Yavín");
+    }
+
+    @Test
+    void importPlanets_FromCsv_CreatesNewPlanetsAndRejectsRepeatedNames() {
+        String csv = "name,climate,terrain\n"
+                + "Hoth,frozen,\"tundra, ice caves\"\n"
+                + "tatooine,arid,desert\n"
+                + "Dagobah,murky,\"swamp, jungles\"\n"
+                + "HOTH,frozen,tundra\n";
+
+        ResponseEntity<String> sut = restTemplate.postForEntity("/planets/import?format=csv", csv, String.class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).contains("\"imported\":2", "\"rejectedCount\":2");
+        ResponseEntity<Planet> hoth = restTemplate.getForEntity("/planets/name/{name}", Planet.class, "hoth");
+        assertThat(hoth.getBody().getTerrain()).isEqualTo("tundra, ice caves");
+        assertThat(restTemplate.getForEntity("/planets/{id}", Planet.class, hoth.getBody().getId()).getBody())
+                .isEqualTo(hoth.getBody());
+    }
+
+    /*
+     * O cliente padrão do TestRestTemplate não envia PATCH, então estes testes
+     * usam o HttpClient do JDK (JdkClientHttpRequestFactory).
+     */
+    @Test
+    void updatePlanet_WithCurrentVersion_UpdatesOnlySentAttributes() {
+        TestRestTemplate patchClient = patchClient();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("\"0\"");
+
+        ResponseEntity<Planet> sut = patchClient.exchange(
+                "/planets/{id}",
+                HttpMethod.PATCH,
+                new HttpEntity<>(Map.of("climate", "hot"), headers),
+                Planet.class,
+                TATOOINE.getId());
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getHeaders().getETag()).isEqualTo("\"1\"");
+        assertThat(sut.getBody().getName()).isEqualTo(TATOOINE.getName());
+        assertThat(sut.getBody().getClimate()).isEqualTo("hot");
+        assertThat(sut.getBody().getTerrain()).isEqualTo(TATOOINE.getTerrain());
+        assertThat(restTemplate.getForObject("/planets/{id}", Planet.class, TATOOINE.getId()).getClimate())
+                .isEqualTo("hot");
+    }
+
+    @Test
+    void updatePlanet_WithStaleVersion_ReturnsPreconditionFailed() {
+        TestRestTemplate patchClient = patchClient();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("\"5\"");
+
+        ResponseEntity<String> sut = patchClient.exchange(
+                "/planets/{id}",
+                HttpMethod.PATCH,
+                new HttpEntity<>(Map.of("climate", "hot"), headers),
+                String.class,
+                TATOOINE.getId());
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(restTemplate.getForObject("/planets/{id}", Planet.class, TATOOINE.getId()).getClimate())
+                .isEqualTo(TATOOINE.getClimate());
+    }
+
+    /*
+     * A versão só é lida do banco: enviada no corpo do POST, ela é ignorada e o
+     * planeta é inserido como novo.
+     */
+    @Test
+    void createPlanet_WithVersionInBody_IgnoresVersion() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = "{\"name\":\"Hoth\",\"climate\":\"frozen\",\"terrain\":\"tundra\",\"version\":3}";
+
+        ResponseEntity<Map> sut = restTemplate.postForEntity("/planets", new HttpEntity<>(body, headers),
+                Map.class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(sut.getBody().get("id")).isNotNull();
+        assertThat(sut.getBody().get("version")).isEqualTo(0);
+    }
+
+    private TestRestTemplate patchClient() {
+        return new TestRestTemplate(restTemplateBuilder
+                .rootUri("http://localhost:" + port)
+                .requestFactory(JdkClientHttpRequestFactory.class));
+    }
+
     @Test
     void removePlanet_ReturnsNoContent() {
         ResponseEntity<Void> sut = restTemplate.exchange(
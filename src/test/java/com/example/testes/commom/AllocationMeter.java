@@ -0,0 +1,28 @@
+package com.example.testes.commom;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Mede quantos bytes a thread atual alocou durante a execução de um trecho de
+ * código, com o contador de alocação por thread da JVM (HotSpot).
+ * Só faz sentido para código que roda na mesma thread do teste, como as
+ * chamadas ao repositório e as requisições do MockMvc.
+ */
+public class AllocationMeter {
+
+   public static final long MB = 1024 * 1024;
+
+   @FunctionalInterface
+   public interface Action {
+      void run() throws Exception;
+   }
+
+   public static long allocatedBytes(Action action) throws Exception {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      long before = threads.getThreadAllocatedBytes(threadId);
+      action.run();
+      return threads.getThreadAllocatedBytes(threadId) - before;
+   }
+
+}
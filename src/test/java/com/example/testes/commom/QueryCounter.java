@@ -0,0 +1,37 @@
+package com.example.testes.commom;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Conta os statements JDBC preparados pelo Hibernate, usando as estatísticas da
+ * SessionFactory. Permite escrever testes que falham quando uma mudança passa
+ * a executar SELECTs a mais (por exemplo, carregar a entidade antes de apagar).
+ * As estatísticas são globais à SessionFactory, então a contagem também inclui
+ * os statements executados pela aplicação em outra thread (como nos testes IT).
+ * Os testes comparam a contagem com o valor exato: zero também falha, porque
+ * indica que a operação medida não chegou ao banco (um cache ou um mock no
+ * caminho), e não que ficou mais barata. JDBC direto pela conexão
+ * (Session.doWork, como no insertAll) não passa pelas estatísticas.
+ */
+public class QueryCounter {
+
+   private final Statistics statistics;
+
+   public QueryCounter(EntityManagerFactory entityManagerFactory) {
+      this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+      this.statistics.setStatisticsEnabled(true);
+      this.statistics.clear();
+   }
+
+   public void reset() {
+      statistics.clear();
+   }
+
+   public long getStatements() {
+      return statistics.getPrepareStatementCount();
+   }
+
+}
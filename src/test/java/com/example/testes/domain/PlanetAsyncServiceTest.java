@@ -0,0 +1,171 @@
+package com.example.testes.domain;
+
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetAsyncServiceTest {
+
+    @Mock
+    private PlanetService planetService;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private PlanetAsyncService planetAsyncService;
+
+    @BeforeEach
+    public void beforeEach() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        planetAsyncService = new PlanetAsyncService(planetService, executor, Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    public void afterEach() {
+        executor.shutdown();
+    }
+
+    /*
+     * As duas consultas só terminam quando ambas estiverem rodando ao mesmo tempo,
+     * então o teste só passa se elas executarem em paralelo.
+     */
+    @Test
+    public void getPlanets_Concurrently_RunInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        when(planetService.get(1L)).thenAnswer(invocation -> {
+            bothRunning.countDown();
+            bothRunning.await(1, TimeUnit.SECONDS);
+            return Optional.of(TATOOINE);
+        });
+        when(planetService.getByName(ALDERAAN.getName())).thenAnswer(invocation -> {
+            bothRunning.countDown();
+            bothRunning.await(1, TimeUnit.SECONDS);
+            return Optional.of(ALDERAAN);
+        });
+
+        CompletableFuture<Optional<Planet>> tatooine = planetAsyncService.get(1L);
+        CompletableFuture<Optional<Planet>> alderaan = planetAsyncService.getByName(ALDERAAN.getName());
+        CompletableFuture.allOf(tatooine, alderaan).get();
+
+        assertThat(bothRunning.getCount()).isZero();
+        assertThat(tatooine.get()).contains(TATOOINE);
+        assertThat(alderaan.get()).contains(ALDERAAN);
+        assertThat(planetAsyncService.getCompleted()).isEqualTo(2);
+    }
+
+    @Test
+    public void getPlanet_SlowerThanTimeout_CompletesWithTimeout() {
+        when(planetService.get(1L)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return Optional.of(TATOOINE);
+        });
+
+        CompletableFuture<Optional<Planet>> sut = planetAsyncService.get(1L);
+
+        assertThatThrownBy(sut::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(planetAsyncService.getTimedOut()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPlanet_WhenCancelled_InterruptsRunningTask() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(planetService.get(1L)).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return Optional.empty();
+        });
+
+        CompletableFuture<Optional<Planet>> sut = planetAsyncService.get(1L);
+        started.await(1, TimeUnit.SECONDS);
+        sut.cancel(true);
+
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(planetAsyncService.getCancelled()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPlanet_WhenServiceFails_CompletesExceptionally() {
+        when(planetService.get(1L)).thenThrow(new IllegalStateException("boom"));
+
+        CompletableFuture<Optional<Planet>> sut = planetAsyncService.get(1L);
+
+        assertThatThrownBy(sut::get).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(planetAsyncService.getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPlanet_WithSaturatedExecutor_IsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(planetService.get(1L)).thenAnswer(invocation -> {
+            release.await(1, TimeUnit.SECONDS);
+            return Optional.of(TATOOINE);
+        });
+
+        CompletableFuture<Optional<Planet>> first = planetAsyncService.get(1L);
+        CompletableFuture<Optional<Planet>> second = planetAsyncService.get(1L);
+        CompletableFuture<Optional<Planet>> sut = planetAsyncService.get(1L);
+        release.countDown();
+
+        assertThatThrownBy(sut::get).hasCauseInstanceOf(TaskRejectedException.class);
+        assertThat(first.get()).contains(TATOOINE);
+        assertThat(second.get()).contains(TATOOINE);
+        assertThat(planetAsyncService.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void counters_AreExportedAsMBeanAttributes() throws Exception {
+        when(planetService.get(1L)).thenReturn(Optional.of(TATOOINE));
+        planetAsyncService.get(1L).get();
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+        exporter.setServer(server);
+        exporter.registerManagedResource(planetAsyncService);
+
+        // Registrado fora de um contexto, o exportador acrescenta a identidade do objeto ao nome.
+        ObjectName name = server.queryNames(new ObjectName("com.example.testes:type=PlanetAsyncService,*"), null)
+                .iterator().next();
+
+        assertThat(server.getAttribute(name, "Submitted")).isEqualTo(1L);
+        assertThat(server.getAttribute(name, "Completed")).isEqualTo(1L);
+        assertThat(server.getAttribute(name, "Failed")).isEqualTo(0L);
+        assertThat(server.getAttribute(name, "TimedOut")).isEqualTo(0L);
+        assertThat(server.getAttribute(name, "Cancelled")).isEqualTo(0L);
+        assertThat(server.getAttribute(name, "Rejected")).isEqualTo(0L);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.example.testes.domain;
+
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static com.example.testes.commom.PlanetConstant.YAVINIV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetColumnarSnapshotTest {
+
+    @Mock
+    private PlanetRepository planetRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlanetColumnarSnapshot snapshot;
+
+    @BeforeEach
+    public void beforeEach() {
+        snapshot = new PlanetColumnarSnapshot(planetRepository, transactionManager);
+        lenient().when(planetRepository.streamAll())
+                .thenAnswer(invocation -> Stream.of(TATOOINE, ALDERAAN, YAVINIV));
+    }
+
+    @Test
+    public void countPlanets_WithFilters_IgnoresCase() {
+        assertThat(snapshot.count(null, null)).isEqualTo(3);
+        assertThat(snapshot.count("TEMPERATE", null)).isEqualTo(1);
+        assertThat(snapshot.count(null, "Desert")).isEqualTo(1);
+        assertThat(snapshot.count("arid", "jungle")).isZero();
+        assertThat(snapshot.count("unknown", null)).isZero();
+    }
+
+    @Test
+    public void listPlanets_WithFilter_ReturnsMatchingPlanetsInIdOrder() {
+        assertThat(snapshot.list(null, null)).containsExactly(TATOOINE, ALDERAAN, YAVINIV);
+        assertThat(snapshot.list(ALDERAAN.getClimate(), ALDERAAN.getTerrain())).containsExactly(ALDERAAN);
+    }
+
+    @Test
+    public void snapshot_AfterEvents_IsUpdatedIncrementally() {
+        snapshot.count(null, null);
+        Planet hoth = new Planet(4L, "Hoth", "frozen", "tundra, ice caves");
+        Planet updatedTatooine = new Planet(TATOOINE.getId(), "Tatooine II", "temperate", "desert");
+
+        snapshot.onCreated(new PlanetCreatedEvent(hoth));
+        snapshot.onUpdated(new PlanetUpdatedEvent(updatedTatooine));
+        snapshot.onRemoved(new PlanetRemovedEvent(ALDERAAN.getId()));
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.list(null, null)).containsExactly(updatedTatooine, YAVINIV, hoth);
+        assertThat(snapshot.count("temperate", null)).isEqualTo(1);
+        verify(planetRepository, times(1)).streamAll();
+    }
+
+    @Test
+    public void snapshot_AfterRemovingMostPlanets_ReloadsFromRepository() {
+        snapshot.count(null, null);
+
+        snapshot.onRemoved(new PlanetRemovedEvent(TATOOINE.getId()));
+        snapshot.onRemoved(new PlanetRemovedEvent(ALDERAAN.getId()));
+        snapshot.count(null, null);
+
+        verify(planetRepository, times(2)).streamAll();
+    }
+
+    @Test
+    public void snapshot_WithManyPlanets_GrowsColumns() {
+        when(planetRepository.streamAll()).thenAnswer(invocation -> LongStream.rangeClosed(1, 5_000)
+                .mapToObj(id -> new Planet(id, "Planet " + id, id % 2 == 0 ? "arid" : "frozen", "desert")));
+
+        assertThat(snapshot.count("arid", "desert")).isEqualTo(2_500);
+        assertThat(snapshot.list("frozen", null)).hasSize(2_500).first().isEqualTo(
+                new Planet(1L, "Planet 1", "frozen", "desert"));
+    }
+
+}
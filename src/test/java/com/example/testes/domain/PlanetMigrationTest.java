@@ -0,0 +1,115 @@
+package com.example.testes.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Migrações sobre um banco criado pelo ddl-auto=update da versão original do
+ * projeto (sem normalized_name e com o nome único na coluna name), com a mesma
+ * configuração do application.properties.
+ */
+public class PlanetMigrationTest {
+
+    private static final String HISTORY = "SELECT \"version\" || ' ' || \"type\" FROM \"flyway_schema_history\""
+            + " WHERE \"version\" IS NOT NULL AND \"success\" ORDER BY \"installed_rank\"";
+
+    private String url;
+
+    @BeforeEach
+    public void setUp() {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    public void migrate_BaselinedOriginalSchema_BackfillsNormalizedNameAndMovesUniqueness() throws SQLException {
+        createOriginalSchema("Tatooine", "Ｈoth", "Alderaan");
+
+        flyway().migrate();
+
+        assertThat(query("SELECT normalized_name FROM planets ORDER BY id"))
+                .containsExactly("tatooine", "hoth", "alderaan");
+        assertThat(query(HISTORY))
+                .containsExactly("1 BASELINE", "1.1 JDBC", "2 SQL", "3 SQL", "4 SQL", "5 SQL", "6 SQL");
+
+        execute("UPDATE planets SET deleted_at = CURRENT_TIMESTAMP, normalized_name = NULL WHERE name = 'Tatooine'");
+        execute("INSERT INTO planets (name, normalized_name, climate, terrain, version)"
+                + " VALUES ('Tatooine', 'tatooine', 'arid', 'desert', 0)");
+        assertThatThrownBy(() -> execute("INSERT INTO planets (name, normalized_name, climate, terrain, version)"
+                + " VALUES ('HOTH', 'hoth', 'frozen', 'tundra', 0)"))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void migrate_BaselinedOriginalSchemaWithNamesDifferingInCase_FailsListingThem() throws SQLException {
+        createOriginalSchema("Tatooine", "TATOOINE", "Alderaan");
+
+        assertThatThrownBy(() -> flyway().migrate())
+                .isInstanceOf(FlywayException.class)
+                .hasStackTraceContaining("[tatooine]");
+    }
+
+    @Test
+    public void migrate_EmptyDatabase_AppliesV1_1WithoutChanges() throws SQLException {
+        flyway().migrate();
+
+        assertThat(query(HISTORY))
+                .containsExactly("1 SQL", "1.1 JDBC", "2 SQL", "3 SQL", "4 SQL", "5 SQL", "6 SQL");
+        assertThat(query("SELECT constraint_name FROM information_schema.table_constraints"
+                + " WHERE table_name = 'PLANETS' AND constraint_type = 'UNIQUE'"))
+                .containsExactly("UK_PLANETS_NORMALIZED_NAME");
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .outOfOrder(true)
+                .load();
+    }
+
+    /* O DDL que o Hibernate gerava para a entidade original. */
+    private void createOriginalSchema(String... names) throws SQLException {
+        execute("CREATE TABLE planets (id BIGINT GENERATED BY DEFAULT AS IDENTITY, climate VARCHAR(255) NOT NULL,"
+                + " name VARCHAR(255) NOT NULL, terrain VARCHAR(255) NOT NULL, PRIMARY KEY (id))");
+        execute("ALTER TABLE planets ADD CONSTRAINT UK_b19q51pod68r7255u76mkayy4 UNIQUE (name)");
+        for (String name : names) {
+            execute("INSERT INTO planets (climate, name, terrain) VALUES ('arid', '" + name + "', 'desert')");
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                values.add(rows.getString(1));
+            }
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.testes.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetPurgerTest {
+
+    @Mock
+    private PlanetRepository planetRepository;
+
+    @Test
+    public void purge_DeletesInBatchesUntilLastPartialBatch() {
+        when(planetRepository.findRemovedIds(any(), anyInt()))
+                .thenReturn(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+        when(planetRepository.purgeByIdIn(any())).thenReturn(2, 2, 1);
+        PlanetPurger purger = new PlanetPurger(planetRepository, 2, 10, Duration.ZERO, Duration.ZERO);
+
+        purger.purge();
+
+        verify(planetRepository, times(3)).purgeByIdIn(any());
+        assertThat(purger.getPurged()).isEqualTo(5);
+    }
+
+    @Test
+    public void purge_StopsAtMaxBatchesPerRun() {
+        when(planetRepository.findRemovedIds(any(), anyInt())).thenReturn(List.of(1L, 2L), List.of(3L, 4L));
+        when(planetRepository.purgeByIdIn(any())).thenReturn(2);
+        PlanetPurger purger = new PlanetPurger(planetRepository, 2, 2, Duration.ZERO, Duration.ZERO);
+
+        purger.purge();
+
+        verify(planetRepository, times(2)).findRemovedIds(any(), anyInt());
+        assertThat(purger.getPurged()).isEqualTo(4);
+    }
+
+    @Test
+    public void purge_WithNothingRemoved_DeletesNothing() {
+        when(planetRepository.findRemovedIds(any(), anyInt())).thenReturn(List.of());
+        PlanetPurger purger = new PlanetPurger(planetRepository, 2, 10, Duration.ZERO, Duration.ZERO);
+
+        purger.purge();
+
+        verify(planetRepository, never()).purgeByIdIn(any());
+        assertThat(purger.getPurged()).isZero();
+    }
+
+}
@@ -1,33 +1,62 @@
 package com.example.testes.domain;
 
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
 import static com.example.testes.commom.PlanetConstant.PLANET;
 import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static com.example.testes.commom.PlanetConstant.YAVINIV;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.jdbc.Sql;
 
+import com.example.testes.commom.AllocationMeter;
+import com.example.testes.commom.QueryCounter;
+
+import jakarta.persistence.EntityManagerFactory;
+
 //@SpringBootTest(classes = PlanetRepository.class)
 @DataJpaTest
 public class PlanetRepositoryTest {
 
+   /*
+    * Medido: 12,6 MB com a JVM fria (teste isolado) e 5,9 MB no meio da suíte.
+    * O orçamento deixa cerca de 50% de folga sobre o pior caso.
+    */
+   private static final long LIST_10K_ALLOCATION_BUDGET = 20 * AllocationMeter.MB;
+
    @Autowired
    private PlanetRepository planetRepository;
 
    @Autowired
    private TestEntityManager testEntityManager;
 
+   @Autowired
+   private EntityManagerFactory entityManagerFactory;
+
+   private QueryCounter queryCounter;
+
+   @BeforeEach
+   public void beforeEach() {
+      queryCounter = new QueryCounter(entityManagerFactory);
+   }
+
    /*
     * Após cada testes ser executado, o seu ID será setado como NULO, para não
     * afetar
@@ -39,6 +68,7 @@ public class PlanetRepositoryTest {
    @AfterEach
    public void afterEach() {
       PLANET.setId(null);
+      PLANET.setVersion(null);
    }
 
    @Test
@@ -120,6 +150,28 @@ public class PlanetRepositoryTest {
       assertThat(sut).isEqualTo(planet);
    }
 
+   @Test
+   public void getPlanet_ById_ExecutesOneStatement() {
+      Planet planet = testEntityManager.persistFlushFind(PLANET);
+      testEntityManager.clear();
+      queryCounter.reset();
+
+      planetRepository.findById(planet.getId());
+
+      assertThat(queryCounter.getStatements()).isEqualTo(1);
+   }
+
+   @Test
+   public void getPlanet_ByNormalizedName_ExecutesOneStatement() {
+      testEntityManager.persistAndFlush(PLANET);
+      testEntityManager.clear();
+      queryCounter.reset();
+
+      planetRepository.findByNormalizedName(Planet.normalizeName(PLANET.getName()));
+
+      assertThat(queryCounter.getStatements()).isEqualTo(1);
+   }
+
    @Test
    public void getPlanet_ByUnexistingId_ReturnsEmpty() {
       Optional<Planet> sut = planetRepository.findById(1L);
@@ -130,18 +182,47 @@ public class PlanetRepositoryTest {
    public void getPlanet_ByExistingName_ReturnsPlanet() {
       Planet planet = testEntityManager.persistFlushFind(PLANET);
 
-      Optional<Planet> sut = planetRepository.findByName(planet.getName());
+      Optional<Planet> sut = planetRepository.findByNormalizedName(Planet.normalizeName(planet.getName()));
 
       assertThat(sut).isNotEmpty();
       assertThat(sut.get()).isEqualTo(planet);
    }
 
+   @Test
+   public void getPlanet_ByNormalizedName_ReturnsPlanet() {
+      Planet planet = testEntityManager.persistFlushFind(new Planet("Ｔatooine", "arid", "desert"));
+
+      Optional<Planet> sut = planetRepository.findByNormalizedName(Planet.normalizeName("TATOOINE"));
+
+      assertThat(sut).contains(planet);
+   }
+
+   /*
+    * A unicidade é garantida pelo nome normalizado, então um nome que difere
+    * apenas nas maiúsculas também é recusado pelo banco.
+    */
+   @Test
+   public void createPlanet_WithExistingNameInAnotherCase_ReturnsThrowException() {
+      testEntityManager.persistAndFlush(new Planet("Tatooine", "arid", "desert"));
+
+      assertThatThrownBy(() -> testEntityManager.persistAndFlush(new Planet("TATOOINE", "arid", "desert")))
+            .isInstanceOf(RuntimeException.class);
+   }
+
    @Test
    public void getPlanet_ByUnexistingName_ReturnsNotFound() {
-      Optional<Planet> sut = planetRepository.findByName(PLANET.getName());
+      Optional<Planet> sut = planetRepository.findByNormalizedName(Planet.normalizeName(PLANET.getName()));
       assertThat(sut).isEmpty();
    }
 
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void getPlanets_ByNormalizedNames_ReturnsOnlyExistingPlanets() {
+      List<Planet> sut = planetRepository.findByNormalizedNameIn(List.of("tatooine", "unexisting planet"));
+
+      assertThat(sut).containsExactly(TATOOINE);
+   }
+
    /*
     * Uso da anotação @Sql, para executar algum script de sql durante os testes
     * Assim, eu consigo realizar alguns testes de 'busca por todos e com filtros'.
@@ -165,6 +246,76 @@ public class PlanetRepositoryTest {
       assertThat(filteredPlanets.get(0)).isEqualTo(TATOOINE);
    }
 
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void countPlanets_GroupedByClimate_ReturnsCounts() {
+      List<PlanetCount> counts = planetRepository.countByClimate(null, null);
+      List<PlanetCount> filteredCounts = planetRepository.countByTerrain("TEMPERATE", null);
+
+      assertThat(counts).containsExactlyInAnyOrder(
+            new PlanetCount(TATOOINE.getClimate(), 1L),
+            new PlanetCount(ALDERAAN.getClimate(), 1L),
+            new PlanetCount(YAVINIV.getClimate(), 1L));
+      assertThat(filteredCounts).containsExactly(new PlanetCount(ALDERAAN.getTerrain(), 1L));
+   }
+
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void findPlanets_FromId_ReturnsNextPlanet() {
+      IdRange range = planetRepository.findIdRange();
+      List<Planet> next = planetRepository.findFromId(2L, PageRequest.of(0, 1));
+      List<Planet> none = planetRepository.findFromId(4L, PageRequest.of(0, 1));
+
+      assertThat(range.getMin()).isEqualTo(TATOOINE.getId());
+      assertThat(range.getMax()).isEqualTo(YAVINIV.getId());
+      assertThat(next).containsExactly(ALDERAAN);
+      assertThat(none).isEmpty();
+   }
+
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void findPlanetIds_MatchingFilters_ReturnsOnlyMatchingIds() {
+      List<Long> all = planetRepository.findMatchingIds(null, null);
+      List<Long> filtered = planetRepository.findMatchingIds(null, "JUNGLE, RAINFORESTS");
+
+      assertThat(all).containsExactlyInAnyOrder(TATOOINE.getId(), ALDERAAN.getId(), YAVINIV.getId());
+      assertThat(filtered).containsExactly(YAVINIV.getId());
+   }
+
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void findPlanets_ByIdRange_ReturnsPlanetsInIdOrder() {
+      List<Planet> sut = planetRepository.findByIdBetweenOrderById(2L, 3L);
+
+      assertThat(sut).containsExactly(ALDERAAN, YAVINIV);
+      assertThat(sut).noneMatch(testEntityManager.getEntityManager()::contains);
+      assertThat(sut).extracting(Planet::getVersion).containsOnly(0L);
+   }
+
+   /*
+    * Orçamento de alocação: a listagem de 10 mil planetas precisa caber em
+    * LIST_10K_ALLOCATION_BUDGET, medido na própria thread do teste, e ser
+    * resolvida com um único statement. Os planetas são inseridos direto pelo
+    * H2 para não entrarem no contexto de persistência.
+    */
+   @Test
+   public void listPlanets_With10kPlanets_StaysWithinBudget() throws Exception {
+      testEntityManager.getEntityManager()
+            .createNativeQuery("INSERT INTO planets (name, normalized_name, climate, terrain)"
+                  + " SELECT 'Planet ' || X, 'planet ' || X, 'arid', 'desert' FROM SYSTEM_RANGE(1, 10000)")
+            .executeUpdate();
+      testEntityManager.clear();
+      Example<Planet> query = QueryBuilder.makeQuery(new Planet());
+      List<Planet> planets = new ArrayList<>();
+      queryCounter.reset();
+
+      long allocated = AllocationMeter.allocatedBytes(() -> planets.addAll(planetRepository.findAll(query)));
+
+      assertThat(planets).hasSize(10_000);
+      assertThat(queryCounter.getStatements()).isEqualTo(1);
+      assertThat(allocated).isLessThan(LIST_10K_ALLOCATION_BUDGET);
+   }
+
    @Test
    public void listPlanets_ReturnsNoPlanets() {
       Example<Planet> queryWithoutFilters = QueryBuilder.makeQuery(new Planet());
@@ -174,12 +325,123 @@ public class PlanetRepositoryTest {
       assertThat(planets).isEmpty();
    }
 
+   @Sql(scripts = "/import_planets.sql")
+   @Test
+   public void streamPlanets_ReturnsDetachedPlanetsOrderedById() {
+      try (Stream<Planet> stream = planetRepository.streamAll()) {
+         List<Planet> planets = stream.toList();
+
+         assertThat(planets).containsExactly(TATOOINE, ALDERAAN, YAVINIV);
+         assertThat(planets).noneMatch(testEntityManager.getEntityManager()::contains);
+         assertThat(planets).extracting(Planet::getVersion).containsOnly(0L);
+      }
+   }
+
+   @Test
+   public void insertAll_WithNewPlanets_InsertsInOneBatchAndAssignsIds() {
+      List<Planet> planets = List.of(new Planet("Hoth", "frozen", "tundra"),
+            new Planet("Dagobah", "murky", "swamp, jungles"));
+
+      planetRepository.insertAll(planets);
+
+      assertThat(planets).allSatisfy(planet -> {
+         assertThat(planet.getId()).isNotNull();
+         assertThat(planet.getVersion()).isZero();
+      });
+      assertThat(planetRepository.findByNormalizedName("dagobah")).contains(planets.get(1));
+      assertThat(planetRepository.findById(planets.get(0).getId())).contains(planets.get(0));
+   }
+
+   @Test
+   public void insertAll_WithExistingName_ThrowsException() {
+      testEntityManager.persistAndFlush(new Planet("Hoth", "frozen", "tundra"));
+
+      assertThatThrownBy(() -> planetRepository.insertAll(List.of(new Planet("HOTH", "frozen", "tundra"))))
+            .isInstanceOf(DataIntegrityViolationException.class);
+   }
+
+   @Test
+   public void updatePlanet_WithCurrentVersion_UpdatesOnlyGivenColumns() {
+      Planet planet = testEntityManager.persistFlushFind(new Planet("Hoth", "frozen", "tundra"));
+      testEntityManager.clear();
+
+      int updated = planetRepository.updatePartially(planet.getId(), "HOTH", null, "ice caves", planet.getVersion());
+      Planet sut = testEntityManager.find(Planet.class, planet.getId());
+
+      assertThat(updated).isEqualTo(1);
+      assertThat(sut.getName()).isEqualTo("HOTH");
+      assertThat(sut.getClimate()).isEqualTo("frozen");
+      assertThat(sut.getTerrain()).isEqualTo("ice caves");
+      assertThat(sut.getVersion()).isEqualTo(planet.getVersion() + 1);
+      assertThat(planetRepository.findByNormalizedName("hoth")).isPresent();
+   }
+
    @Test
-   public void removePlanet_WithExistingId_RemovesPlanetFromDataBase() throws Exception {
+   public void updatePlanet_WithStaleVersion_UpdatesNothing() {
+      Planet planet = testEntityManager.persistFlushFind(new Planet("Hoth", "frozen", "tundra"));
+      testEntityManager.clear();
+
+      int updated = planetRepository.updatePartially(planet.getId(), null, "temperate", null, planet.getVersion() + 1);
+      Planet sut = testEntityManager.find(Planet.class, planet.getId());
+
+      assertThat(updated).isZero();
+      assertThat(sut.getClimate()).isEqualTo("frozen");
+      assertThat(sut.getVersion()).isEqualTo(planet.getVersion());
+   }
+
+   /*
+    * A remoção lógica é um único UPDATE, sem carregar a entidade antes.
+    */
+   @Test
+   public void removePlanet_ById_ExecutesOneUpdate() {
       Planet planet = testEntityManager.persistFlushFind(PLANET);
-      planetRepository.deleteById(planet.getId());
-      Planet removedPlanet = testEntityManager.find(Planet.class, planet.getId());
-      assertThat(removedPlanet).isNull();
+      testEntityManager.clear();
+      queryCounter.reset();
+
+      planetRepository.softDeleteById(planet.getId(), Instant.now());
+
+      assertThat(queryCounter.getStatements()).isEqualTo(1);
+   }
+
+   @Test
+   public void removePlanet_WithExistingId_HidesPlanetFromQueries() throws Exception {
+      Planet planet = testEntityManager.persistFlushFind(PLANET);
+
+      int removed = planetRepository.softDeleteById(planet.getId(), Instant.now());
+
+      assertThat(removed).isEqualTo(1);
+      assertThat(planetRepository.findById(planet.getId())).isEmpty();
+      assertThat(planetRepository.findByNormalizedName(Planet.normalizeName(planet.getName()))).isEmpty();
+      assertThat(planetRepository.findAll(QueryBuilder.makeQuery(new Planet()))).isEmpty();
+      assertThat(planetRepository.softDeleteById(planet.getId(), Instant.now())).isZero();
+   }
+
+   @Test
+   public void removePlanet_WithExistingId_FreesNameForReuse() {
+      Planet planet = testEntityManager.persistFlushFind(new Planet("Hoth", "frozen", "tundra"));
+      planetRepository.softDeleteById(planet.getId(), Instant.now());
+
+      Planet sut = testEntityManager.persistFlushFind(new Planet("HOTH", "frozen", "ice caves"));
+
+      assertThat(sut.getId()).isNotEqualTo(planet.getId());
+      assertThat(planetRepository.findByNormalizedName("hoth")).contains(sut);
+   }
+
+   @Test
+   public void purgePlanets_RemovedBeforeCutoff_DeletesRows() {
+      Planet removed = testEntityManager.persistFlushFind(new Planet("Hoth", "frozen", "tundra"));
+      Planet kept = testEntityManager.persistFlushFind(new Planet("Endor", "temperate", "forests"));
+      planetRepository.softDeleteById(removed.getId(), Instant.now().minusSeconds(60));
+
+      List<Long> ids = planetRepository.findRemovedIds(Instant.now(), 10);
+      int purged = planetRepository.purgeByIdIn(ids);
+      Number rows = (Number) testEntityManager.getEntityManager()
+            .createNativeQuery("SELECT COUNT(*) FROM planets").getSingleResult();
+
+      assertThat(ids).containsExactly(removed.getId());
+      assertThat(purged).isEqualTo(1);
+      assertThat(rows.longValue()).isEqualTo(1);
+      assertThat(planetRepository.findById(kept.getId())).isPresent();
    }
 
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.example.testes.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetScannerTest {
+
+    @Mock
+    private PlanetRepository planetRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    public void beforeEach() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void scan_Serially_StreamsAllPlanets() {
+        when(planetRepository.streamAll()).thenReturn(planets(1, 3).stream());
+
+        List<Long> sut = ids(new PlanetScanner(planetRepository, transactionManager, executor, 1, 100));
+
+        assertThat(sut).containsExactly(1L, 2L, 3L);
+        verify(planetRepository, never()).findIdRange();
+    }
+
+    /*
+     * As primeiras faixas demoram mais que as últimas, mas os planetas ainda
+     * precisam chegar ao consumidor em ordem de id.
+     */
+    @Test
+    public void scan_InParallel_DeliversRangesInIdOrder() {
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(1L, 10L));
+        when(planetRepository.findByIdBetweenOrderById(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long fromId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            Thread.sleep((10 - fromId) * 5);
+            return planets(fromId, toId);
+        });
+
+        List<Long> sut = ids(new PlanetScanner(planetRepository, transactionManager, executor, 4, 3));
+
+        assertThat(sut).containsExactlyElementsOf(LongStream.rangeClosed(1, 10).boxed().toList());
+        verify(planetRepository).findByIdBetweenOrderById(10L, 10L);
+    }
+
+    @Test
+    public void scan_WithEmptyTable_DeliversNothing() {
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(null, null));
+
+        List<Long> sut = ids(new PlanetScanner(planetRepository, transactionManager, executor, 4, 3));
+
+        assertThat(sut).isEmpty();
+    }
+
+    /*
+     * As faixas só terminam quando duas estiverem sendo lidas ao mesmo tempo,
+     * então o teste só passa se a varredura de fato consultar em paralelo.
+     */
+    @Test
+    public void scan_InParallel_ReadsRangesConcurrently() {
+        CountDownLatch twoReading = new CountDownLatch(2);
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(1L, 8L));
+        when(planetRepository.findByIdBetweenOrderById(anyLong(), anyLong())).thenAnswer(invocation -> {
+            twoReading.countDown();
+            twoReading.await(1, TimeUnit.SECONDS);
+            return planets(invocation.getArgument(0), invocation.getArgument(1));
+        });
+
+        List<Long> sut = ids(new PlanetScanner(planetRepository, transactionManager, executor, 4, 2));
+
+        assertThat(sut).hasSize(8);
+        assertThat(twoReading.getCount()).isZero();
+    }
+
+    /*
+     * Com o executor de varredura ocupado, as faixas recusadas são lidas na
+     * thread de quem chamou, sem esperar por uma thread livre.
+     */
+    @Test
+    public void scan_WithBusyExecutor_ReadsRejectedRangesOnCallerThread() {
+        ThreadPoolTaskExecutor busy = new ThreadPoolTaskExecutor();
+        busy.setCorePoolSize(1);
+        busy.setMaxPoolSize(1);
+        busy.setQueueCapacity(0);
+        busy.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        busy.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(1L, 10L));
+        when(planetRepository.findByIdBetweenOrderById(anyLong(), anyLong())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return planets(invocation.getArgument(0), invocation.getArgument(1));
+        });
+
+        try {
+            List<Long> sut = ids(new PlanetScanner(planetRepository, transactionManager, busy, 4, 3));
+
+            assertThat(sut).containsExactlyElementsOf(LongStream.rangeClosed(1, 10).boxed().toList());
+            assertThat(threads).containsExactly(Thread.currentThread().getName());
+        } finally {
+            release.countDown();
+            busy.shutdown();
+        }
+    }
+
+    private static List<Long> ids(PlanetScanner scanner) {
+        List<Long> ids = new ArrayList<>();
+        scanner.scan(planet -> ids.add(planet.getId()));
+        return ids;
+    }
+
+    private static List<Planet> planets(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+                .mapToObj(id -> new Planet(id, "Planet " + id, "arid", "desert"))
+                .toList();
+    }
+
+}
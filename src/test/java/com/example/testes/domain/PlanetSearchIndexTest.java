@@ -0,0 +1,100 @@
+package com.example.testes.domain;
+
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static com.example.testes.commom.PlanetConstant.YAVINIV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetSearchIndexTest {
+
+    @Mock
+    private PlanetRepository planetRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlanetSearchIndex searchIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        searchIndex = new PlanetSearchIndex(planetRepository, transactionManager, false);
+        lenient().when(planetRepository.streamAll()).thenReturn(Stream.of(TATOOINE, ALDERAAN, YAVINIV));
+    }
+
+    @Test
+    public void searchPlanets_ByPrefix_ReturnsMatchingPlanet() {
+        List<Long> sut = searchIndex.search("tat", 10);
+
+        assertThat(sut).containsExactly(TATOOINE.getId());
+    }
+
+    @Test
+    public void searchPlanets_WithTypo_ReturnsSimilarPlanet() {
+        List<Long> sut = searchIndex.search("Aldeeran", 10);
+
+        assertThat(sut).containsExactly(ALDERAAN.getId());
+    }
+
+    @Test
+    public void searchPlanets_IgnoringCase_RanksExactNameFirst() {
+        searchIndex.search("yavin", 10);
+        searchIndex.onCreated(new PlanetCreatedEvent(new Planet(4L, "Yavin", "temperate", "jungle")));
+
+        List<Long> sut = searchIndex.search("YAVIN", 10);
+
+        assertThat(sut).containsExactly(4L, YAVINIV.getId());
+    }
+
+    @Test
+    public void searchPlanets_WithAccent_MatchesOnlyBySimilarity() {
+        searchIndex.search("yavin", 10);
+        searchIndex.onCreated(new PlanetCreatedEvent(new Planet(4L, "Yavín", "temperate", "jungle")));
+
+        List<Long> sut = searchIndex.search("YAVIN", 10);
+
+        assertThat(sut).containsExactly(YAVINIV.getId(), 4L);
+    }
+
+    @Test
+    public void searchPlanets_WithLimit_ReturnsOnlyBestMatches() {
+        searchIndex.search("tatooine", 10);
+        searchIndex.onCreated(new PlanetCreatedEvent(new Planet(4L, "Tatooine II", "arid", "desert")));
+
+        List<Long> sut = searchIndex.search("tatooine", 1);
+
+        assertThat(sut).containsExactly(TATOOINE.getId());
+    }
+
+    @Test
+    public void searchPlanets_AfterRemoval_DoesNotReturnRemovedPlanet() {
+        searchIndex.search("tatooine", 10);
+        searchIndex.onRemoved(new PlanetRemovedEvent(TATOOINE.getId()));
+
+        List<Long> sut = searchIndex.search("tatooine", 10);
+
+        assertThat(sut).isEmpty();
+        verify(planetRepository, times(1)).streamAll();
+    }
+
+    @Test
+    public void searchPlanets_WithBlankTerm_ReturnsEmpty() {
+        List<Long> sut = searchIndex.search("  ", 10);
+
+        assertThat(sut).isEmpty();
+    }
+
+}
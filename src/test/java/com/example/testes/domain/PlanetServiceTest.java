@@ -1,7 +1,10 @@
 package com.example.testes.domain;
 
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
 import static com.example.testes.commom.PlanetConstant.INVALID_PLANET;
 import static com.example.testes.commom.PlanetConstant.PLANET;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static com.example.testes.commom.PlanetConstant.YAVINIV;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -9,18 +12,34 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Example;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 @ExtendWith(MockitoExtension.class)
 public class PlanetServiceTest {
@@ -33,6 +52,18 @@ public class PlanetServiceTest {
     @Mock
     private PlanetRepository planetRepository;
 
+    @Mock
+    private PlanetSearchIndex searchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlanetScanner planetScanner;
+
+    @Mock
+    private CacheManager cacheManager;
+
     @Test
     public void createPlanet_WithValidData_ReturnsPlanet() {
         /// AAA
@@ -45,6 +76,22 @@ public class PlanetServiceTest {
 
         // Assert
         assertThat(sut).isEqualTo(PLANET);
+        verify(eventPublisher).publishEvent(any(PlanetCreatedEvent.class));
+    }
+
+    @Test
+    public void createAll_WithRepeatedNames_InsertsOnlyNewPlanets() {
+        Planet hoth = new Planet("Hoth", "frozen", "tundra");
+        Planet tatooine = new Planet("TATOOINE", "arid", "desert");
+        Planet hothAgain = new Planet("hoth", "frozen", "ice caves");
+        when(planetRepository.findByNormalizedNameIn(List.of("hoth", "tatooine")))
+                .thenReturn(List.of(new Planet(1L, "Tatooine", "arid", "desert")));
+
+        List<Planet> sut = planetService.createAll(List.of(hoth, tatooine, hothAgain));
+
+        assertThat(sut).containsExactly(tatooine, hothAgain);
+        verify(planetRepository).insertAll(List.of(hoth));
+        verify(eventPublisher, times(1)).publishEvent(any(PlanetCreatedEvent.class));
     }
 
     /**
@@ -76,6 +123,37 @@ public class PlanetServiceTest {
         assertThatThrownBy(() -> planetService.create(INVALID_PLANET)).isInstanceOf(RuntimeException.class);
     }
 
+    @Test
+    public void updatePlanet_WithCurrentVersion_ReturnsUpdatedPlanet() {
+        Planet updatedPlanet = new Planet(1L, "Tatooine", "hot", "desert");
+        updatedPlanet.setVersion(1L);
+        when(planetRepository.updatePartially(1L, null, "hot", null, 0L)).thenReturn(1);
+        when(planetRepository.findById(1L)).thenReturn(Optional.of(updatedPlanet));
+
+        Planet sut = planetService.update(1L, null, "hot", null, 0L);
+
+        assertThat(sut).isEqualTo(updatedPlanet);
+        verify(eventPublisher).publishEvent(any(PlanetUpdatedEvent.class));
+    }
+
+    @Test
+    public void updatePlanet_WithStaleVersion_ThrowsException() {
+        when(planetRepository.updatePartially(1L, null, "hot", null, 0L)).thenReturn(0);
+        when(planetRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> planetService.update(1L, null, "hot", null, 0L))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
+    @Test
+    public void updatePlanet_WithUnexistingId_ThrowsException() {
+        when(planetRepository.updatePartially(99L, null, "hot", null, null)).thenReturn(0);
+        when(planetRepository.existsById(99L)).thenReturn(false);
+
+        assertThatThrownBy(() -> planetService.update(99L, null, "hot", null, null))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+    }
+
     @Test
     public void getPlanet_ByExistingId_ReturnsPlanet() {
         /// AAA - Arrange, Act, Assert
@@ -100,7 +178,8 @@ public class PlanetServiceTest {
 
     @Test
     public void getPlanet_ByExistingName_ReturnsPlanet() {
-        when(planetRepository.findByName(PLANET.getName())).thenReturn(Optional.of(PLANET));
+        when(planetRepository.findByNormalizedName(Planet.normalizeName(PLANET.getName())))
+                .thenReturn(Optional.of(PLANET));
 
         Optional<Planet> sut = planetService.getByName(PLANET.getName());
 
@@ -109,16 +188,97 @@ public class PlanetServiceTest {
         assertThat(sut.get().getName()).isEqualTo(PLANET.getName());
     }
 
+    @Test
+    public void getPlanet_ByNameInAnotherCase_ReturnsPlanet() {
+        when(planetRepository.findByNormalizedName("tatooine")).thenReturn(Optional.of(TATOOINE));
+
+        Optional<Planet> sut = planetService.getByName("TATOOINE");
+
+        assertThat(sut).contains(TATOOINE);
+    }
+
     @Test
     public void getPlanet_ByUnexistingName_ReturnsEmpty() {
         final String planetName = "Unexisting planet";
-        when(planetRepository.findByName(anyString())).thenReturn(Optional.empty());
+        when(planetRepository.findByNormalizedName(anyString())).thenReturn(Optional.empty());
 
         Optional<Planet> sut = planetService.getByName(planetName);
 
         assertThat(sut).isEmpty();
     }
 
+    @Test
+    public void getPlanets_InBatch_ReturnsFoundPlanetsAndMissingKeys() {
+        when(planetRepository.findAllById(List.of(1L, 99L))).thenReturn(List.of(TATOOINE));
+        when(planetRepository.findByNormalizedNameIn(List.of("alderaan", "tatooine", "unexisting planet")))
+                .thenReturn(List.of(TATOOINE, ALDERAAN));
+
+        PlanetLookup sut = planetService.getAll(
+                List.of(1L, 99L, 1L),
+                List.of("ALDERAAN", TATOOINE.getName(), "Unexisting planet", "alderaan"));
+
+        assertThat(sut.getPlanets()).containsExactly(TATOOINE, ALDERAAN);
+        assertThat(sut.getMissingIds()).containsExactly(99L);
+        assertThat(sut.getMissingNames()).containsExactly("Unexisting planet");
+    }
+
+    /*
+     * Chaves em cache não vão ao banco, nem as que o cache já sabe que não
+     * existem; as lidas do banco passam a estar em cache.
+     */
+    @Test
+    public void getPlanets_InBatch_ServesCachedKeysAndQueriesOnlyMisses() {
+        Cache idCache = new ConcurrentMapCache(PlanetService.PLANETS_CACHE);
+        idCache.put(1L, TATOOINE);
+        idCache.put(2L, null);
+        Cache nameCache = new ConcurrentMapCache(PlanetService.PLANETS_BY_NAME_CACHE);
+        nameCache.put("alderaan", ALDERAAN);
+        when(cacheManager.getCache(PlanetService.PLANETS_CACHE)).thenReturn(idCache);
+        when(cacheManager.getCache(PlanetService.PLANETS_BY_NAME_CACHE)).thenReturn(nameCache);
+        when(planetRepository.findAllById(List.of(3L))).thenReturn(List.of(YAVINIV));
+        when(planetRepository.findByNormalizedNameIn(List.of("yavin iv"))).thenReturn(List.of(YAVINIV));
+
+        PlanetLookup sut = planetService.getAll(List.of(1L, 2L, 3L), List.of("ALDERAAN", YAVINIV.getName()));
+
+        assertThat(sut.getPlanets()).containsExactly(TATOOINE, YAVINIV, ALDERAAN);
+        assertThat(sut.getMissingIds()).containsExactly(2L);
+        assertThat(sut.getMissingNames()).isEmpty();
+        assertThat(idCache.get(3L, Planet.class)).isEqualTo(YAVINIV);
+        assertThat(nameCache.get("yavin iv", Planet.class)).isEqualTo(YAVINIV);
+    }
+
+    @Test
+    public void getPlanets_InBatch_QueriesOncePerChunk() {
+        List<Long> ids = LongStream.rangeClosed(1, PlanetService.LOOKUP_CHUNK_SIZE + 1).boxed().toList();
+        when(planetRepository.findAllById(any())).thenReturn(List.of());
+
+        PlanetLookup sut = planetService.getAll(ids, null);
+
+        verify(planetRepository, times(2)).findAllById(any());
+        verify(planetRepository, never()).findByNormalizedNameIn(any());
+        assertThat(sut.getMissingIds()).hasSize(ids.size());
+    }
+
+    @Test
+    public void searchPlanets_ReturnsPlanetsInRankOrder() {
+        when(searchIndex.search("tat", PlanetService.MAX_SEARCH_RESULTS)).thenReturn(List.of(3L, 1L));
+        when(planetRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(TATOOINE, YAVINIV));
+
+        List<Planet> sut = planetService.search("tat", 1000);
+
+        assertThat(sut).containsExactly(YAVINIV, TATOOINE);
+    }
+
+    @Test
+    public void searchPlanets_WithoutMatches_DoesNotQueryRepository() {
+        when(searchIndex.search("zzz", 10)).thenReturn(List.of());
+
+        List<Planet> sut = planetService.search("zzz", 10);
+
+        assertThat(sut).isEmpty();
+        verify(planetRepository, never()).findAllById(any());
+    }
+
     @Test
     public void listPlanets_ReturnsAllPlanets() {
         Example<Planet> query = QueryBuilder.makeQuery(new Planet(PLANET.getClimate(), PLANET.getTerrain()));
@@ -141,6 +301,133 @@ public class PlanetServiceTest {
         assertThat(sut).isEmpty();
     }
 
+    @Test
+    public void samplePlanets_ReturnsDistinctPlanets() {
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(1L, 3L));
+        when(planetRepository.findFromId(anyLong(), any()))
+                .thenReturn(List.of(TATOOINE), List.of(TATOOINE), List.of(ALDERAAN));
+
+        List<Planet> sut = planetService.sample(2, null, null);
+
+        assertThat(sut).containsExactly(TATOOINE, ALDERAAN);
+        verify(planetRepository, never()).findMatchingIds(any(), any());
+    }
+
+    @Test
+    public void samplePlanets_WithFilters_DrawsAmongMatchingIdsAndLoadsThemAtOnce() {
+        when(planetRepository.findMatchingIds("arid", null)).thenReturn(List.of(1L, 3L));
+        when(planetRepository.findAllById(any())).thenReturn(List.of(TATOOINE, YAVINIV));
+
+        List<Planet> sut = planetService.sample(5, "arid", null);
+
+        assertThat(sut).containsExactlyInAnyOrder(TATOOINE, YAVINIV);
+        verify(planetRepository).findAllById(argThat(ids -> ids instanceof Collection<?> collection
+                && collection.size() == 2 && collection.containsAll(List.of(1L, 3L))));
+        verify(planetRepository, never()).findIdRange();
+        verify(planetRepository, never()).findFromId(anyLong(), any());
+    }
+
+    @Test
+    public void samplePlanets_WithoutMatchingPlanets_ReturnsEmpty() {
+        when(planetRepository.findMatchingIds("frozen", null)).thenReturn(List.of());
+
+        List<Planet> sut = planetService.sample(5, "frozen", null);
+
+        assertThat(sut).isEmpty();
+        verify(planetRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void randomIndexes_ReturnsDistinctIndexesWithinBound() {
+        for (int i = 0; i < 100; i++) {
+            Set<Integer> sut = PlanetService.randomIndexes(5, 8);
+
+            assertThat(sut).hasSize(5).allMatch(index -> index >= 0 && index < 8);
+        }
+        assertThat(PlanetService.randomIndexes(3, 3)).containsExactlyInAnyOrder(0, 1, 2);
+    }
+
+    @Test
+    public void samplePlanets_FromEmptyTable_ReturnsEmpty() {
+        when(planetRepository.findIdRange()).thenReturn(new IdRange(null, null));
+
+        List<Planet> sut = planetService.sample(5, null, null);
+
+        assertThat(sut).isEmpty();
+    }
+
+    @Test
+    public void countPlanets_ByTerrain_ReturnsCountsSortedByTotal() {
+        when(planetRepository.countByTerrain(null, null)).thenReturn(List.of(
+                new PlanetCount("desert", 1L),
+                new PlanetCount("grasslands, mountains", 2L)));
+
+        List<PlanetCount> sut = planetService.count(PlanetAttribute.TERRAIN, false, null, null);
+
+        assertThat(sut).containsExactly(
+                new PlanetCount("grasslands, mountains", 2L),
+                new PlanetCount("desert", 1L));
+    }
+
+    @Test
+    public void countPlanets_ByClimateTokens_SumsEachToken() {
+        when(planetRepository.countByClimate(null, null)).thenReturn(List.of(
+                new PlanetCount("temperate", 2L),
+                new PlanetCount("temperate, tropical", 1L),
+                new PlanetCount("Arid", 1L)));
+
+        List<PlanetCount> sut = planetService.count(PlanetAttribute.CLIMATE, true, null, null);
+
+        assertThat(sut).containsExactly(
+                new PlanetCount("temperate", 3L),
+                new PlanetCount("arid", 1L),
+                new PlanetCount("tropical", 1L));
+    }
+
+    @Test
+    public void exportPlanets_DeliversEveryScannedPlanet() {
+        doAnswer(invocation -> {
+            Consumer<Planet> consumer = invocation.getArgument(0);
+            consumer.accept(PLANET);
+            return null;
+        }).when(planetScanner).scan(any());
+
+        List<Planet> sut = new ArrayList<>();
+        planetService.export(sut::add);
+
+        assertThat(sut).containsExactly(PLANET);
+    }
+
+    @Test
+    public void listPlanets_WithoutFiltersAndParallelScan_UsesPartitionedScan() {
+        when(planetScanner.isParallel()).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<Planet> consumer = invocation.getArgument(0);
+            List.of(TATOOINE, ALDERAAN, YAVINIV).forEach(consumer);
+            return null;
+        }).when(planetScanner).scan(any());
+
+        List<Planet> sut = planetService.list(null, null);
+
+        assertThat(sut).containsExactly(TATOOINE, ALDERAAN, YAVINIV);
+        verify(planetRepository, never()).findAll(any(Example.class));
+        assertThatThrownBy(() -> sut.add(PLANET)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    /*
+     * A lista vai para o cache e é compartilhada por todos os chamadores, então
+     * ela não pode ser alterada por nenhum deles.
+     */
+    @Test
+    public void listPlanets_ReturnsImmutableList() {
+        when(planetRepository.findAll(any())).thenReturn(new ArrayList<>(List.of(TATOOINE)));
+
+        List<Planet> sut = planetService.list(TATOOINE.getClimate(), null);
+
+        assertThat(sut).containsExactly(TATOOINE);
+        assertThatThrownBy(() -> sut.add(ALDERAAN)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
     /*
      * Neste cenário, pelo método delete no service se tratar de um método void, não é possível usar o método Mockito.when().
      * Isso porque o When espera algo a ser retornado, logo, métodos voids não são compatíveis com ele. 
@@ -150,17 +437,23 @@ public class PlanetServiceTest {
      */
     @Test
     public void removePlanet_WithExistingId_doesNotThrowAnyException() {
+        when(planetRepository.softDeleteById(eq(1L), any())).thenReturn(1);
+
         assertThatCode(() -> planetService.remove(1L)).doesNotThrowAnyException();
+        verify(eventPublisher).publishEvent(any(PlanetRemovedEvent.class));
     }
 
     /*
-     * Uso do método doThrow, para lançar uma exceção quando planetRepository ter o método deleteById invocado e não conseguir deletar pelo ID passado.
-     * Isso é um stub, onde eu estou amarrando o comportamento do planeyRepository
+     * A remoção lógica não lança exceção para um id inexistente: ela apenas não
+     * altera nenhuma linha, e é o service que traduz isso em
+     * EmptyResultDataAccessException.
      */
     @Test
     public void removePlanet_WithUnexistingId_ThrowsException() {
-        doThrow(new RuntimeException()).when(planetRepository).deleteById(99L);
-        assertThatThrownBy(() -> planetService.remove(99L)).isInstanceOf(RuntimeException.class);
+        when(planetRepository.softDeleteById(eq(99L), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> planetService.remove(99L)).isInstanceOf(EmptyResultDataAccessException.class);
+        verify(eventPublisher, never()).publishEvent(any(PlanetRemovedEvent.class));
     }
 
 }
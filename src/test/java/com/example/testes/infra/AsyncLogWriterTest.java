@@ -0,0 +1,106 @@
+package com.example.testes.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AsyncLogWriterTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    public void append_FromManyThreadsIntoSmallBuffer_BlocksAndWritesEveryLine() throws Exception {
+        Path file = dir.resolve("access.log");
+        AsyncLogWriter writer = new AsyncLogWriter("test", file, 8, AsyncLogWriter.OverflowPolicy.BLOCK,
+                1024 * 1024, 1);
+        writer.start();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    writer.append("thread-" + thread + " line-" + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        writer.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(4_000).contains("thread-0 line-999", "thread-3 line-0");
+        assertThat(writer.getDropped()).isZero();
+        assertThat(writer.getWritten()).isEqualTo(4_000);
+    }
+
+    @Test
+    public void append_WhenFullWithDropPolicy_DropsLines() throws Exception {
+        Path file = dir.resolve("sql.log");
+        AsyncLogWriter writer = new AsyncLogWriter("test", file, 4, AsyncLogWriter.OverflowPolicy.DROP,
+                1024 * 1024, 1);
+
+        for (int i = 0; i < 6; i++) {
+            writer.append("line-" + i);
+        }
+        writer.start();
+        writer.close();
+
+        assertThat(writer.getDropped()).isEqualTo(2);
+        assertThat(Files.readAllLines(file)).containsExactly("line-0", "line-1", "line-2", "line-3");
+    }
+
+    @Test
+    public void append_BeyondMaxFileSize_RollsFiles() throws Exception {
+        Path file = dir.resolve("access.log");
+        AsyncLogWriter writer = new AsyncLogWriter("test", file, 1024, AsyncLogWriter.OverflowPolicy.BLOCK, 100, 2);
+        writer.start();
+        for (int i = 0; i < 100; i++) {
+            writer.append(String.format("line-%03d", i));
+        }
+        writer.close();
+
+        assertThat(Files.exists(dir.resolve("access.log.1"))).isTrue();
+        assertThat(Files.exists(dir.resolve("access.log.2"))).isTrue();
+        assertThat(Files.exists(dir.resolve("access.log.3"))).isFalse();
+        assertThat(Files.readAllLines(file)).last().isEqualTo("line-099");
+    }
+
+    @Test
+    public void append_NonAsciiLines_RollsByEncodedSize() throws Exception {
+        Path file = dir.resolve("access.log");
+        String line = "ação-órbita-çã";
+        int lineBytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+        AsyncLogWriter writer = new AsyncLogWriter("test", file, 1024, AsyncLogWriter.OverflowPolicy.BLOCK,
+                lineBytes * 4, 1);
+        writer.start();
+        for (int i = 0; i < 6; i++) {
+            writer.append(line);
+        }
+        writer.close();
+
+        assertThat(Files.size(dir.resolve("access.log.1"))).isEqualTo(lineBytes * 4L);
+        assertThat(Files.readAllLines(file)).containsExactly(line, line);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.example.testes.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+public class JdbcInstrumentationPostProcessorTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    public void dataSource_WithSqlLog_LogsStatementsWithParameters() throws Exception {
+        Path file = dir.resolve("sql.log");
+        AsyncLogWriter sqlLog = new AsyncLogWriter("sql", file, 64, AsyncLogWriter.OverflowPolicy.BLOCK,
+                1024 * 1024, 1);
+        sqlLog.start();
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql-log;DB_CLOSE_DELAY=-1");
+        JdbcInstrumentationPostProcessor postProcessor = new JdbcInstrumentationPostProcessor(
+                new StaticListableBeanFactory(Map.of(AsyncLogConfig.SQL_LOG, sqlLog)).getBeanProvider(AsyncLogWriter.class));
+        DataSource dataSource = (DataSource) postProcessor.postProcessAfterInitialization(h2, "dataSource");
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE planets (id BIGINT, name VARCHAR(255))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO planets VALUES (?, ?)")) {
+                insert.setLong(1, 1L);
+                insert.setString(2, "Tatooine");
+                insert.executeUpdate();
+            }
+        }
+        sqlLog.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains(" took=", "sql=CREATE TABLE planets");
+        assertThat(lines.get(1)).endsWith("sql=INSERT INTO planets VALUES (?, ?) params=[1, Tatooine]");
+    }
+
+    @Test
+    public void dataSource_WithoutSqlLog_OnlyTimesStatements() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sql-timing;DB_CLOSE_DELAY=-1");
+        JdbcInstrumentationPostProcessor postProcessor = new JdbcInstrumentationPostProcessor(
+                new StaticListableBeanFactory().getBeanProvider(AsyncLogWriter.class));
+        DataSource dataSource = (DataSource) postProcessor.postProcessAfterInitialization(h2, "dataSource");
+        RequestTimings timings = RequestTimings.begin(true);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+        } finally {
+            RequestTimings.end();
+        }
+
+        assertThat(timings.toServerTiming()).contains("sql;dur=");
+    }
+
+    @Test
+    public void dataSource_WhenPostProcessed_KeepsPoolReachableAndClosesIt() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:sql-pool;DB_CLOSE_DELAY=-1");
+        JdbcInstrumentationPostProcessor postProcessor = new JdbcInstrumentationPostProcessor(
+                new StaticListableBeanFactory().getBeanProvider(AsyncLogWriter.class));
+
+        DataSource dataSource = (DataSource) postProcessor.postProcessAfterInitialization(pool, "dataSource");
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+        assertThat(dataSource.unwrap(HikariDataSource.class)).isSameAs(pool);
+        ((AutoCloseable) dataSource).close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.example.testes.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Service;
+
+public class PhaseTimingPostProcessorTest {
+
+    @Test
+    public void proxies_WhenTimingIsOn_RecordServiceAndRepositoryPhases() {
+        TimedRepository repository = (TimedRepository) PhaseTimingPostProcessor.repositories()
+                .postProcessAfterInitialization(new TimedRepository(), "repository");
+        TimedService service = (TimedService) PhaseTimingPostProcessor.services()
+                .postProcessAfterInitialization(new TimedService(repository), "service");
+        RequestTimings timings = RequestTimings.begin(true);
+
+        try {
+            assertThat(service.find()).isEqualTo("planet");
+        } finally {
+            RequestTimings.end();
+        }
+
+        assertThat(timings.toServerTiming())
+                .startsWith("build;dur=")
+                .contains("db;dur=")
+                .doesNotContain("service;");
+    }
+
+    @Test
+    public void proxies_WhenTimingIsOff_OnlyDelegate() {
+        TimedRepository repository = (TimedRepository) PhaseTimingPostProcessor.repositories()
+                .postProcessAfterInitialization(new TimedRepository(), "repository");
+
+        assertThat(repository.find()).isEqualTo("planet");
+        assertThat(RequestTimings.current()).isNull();
+    }
+
+    public static class TimedRepository implements Repository<Object, Long> {
+
+        public String find() {
+            return "planet";
+        }
+
+    }
+
+    @Service
+    public static class TimedService {
+
+        private final TimedRepository repository;
+
+        public TimedService() {
+            this(null);
+        }
+
+        public TimedService(TimedRepository repository) {
+            this.repository = repository;
+        }
+
+        public String find() {
+            return repository.find();
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.testes.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class PlanetFilterStatsTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    public void top_ReturnsMostRequestedFiltersFirst() {
+        PlanetFilterStats stats = new PlanetFilterStats();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/planets");
+        request.setParameter("climate", "arid");
+
+        stats.preHandle(request, new MockHttpServletResponse(), null);
+        stats.preHandle(request, new MockHttpServletResponse(), null);
+        stats.record(null, null);
+
+        assertThat(stats.top(2)).extracting(PlanetFilterStats.HotFilter::getClimate).containsExactly("arid", null);
+        assertThat(stats.top(1)).extracting(PlanetFilterStats.HotFilter::getTerrain).containsOnlyNulls();
+    }
+
+    @Test
+    public void load_AfterSave_KeepsRankingWithHalvedCounts() throws Exception {
+        Path file = dir.resolve("hot-filters.tsv");
+        PlanetFilterStats previousRun = new PlanetFilterStats();
+        for (int i = 0; i < 4; i++) {
+            previousRun.record("temperate", "jungle");
+        }
+        previousRun.record("arid", null);
+        previousRun.save(file);
+
+        PlanetFilterStats stats = new PlanetFilterStats();
+        stats.load(file);
+        stats.record("frozen", "tundra");
+        stats.record("frozen", "tundra");
+        stats.record("frozen", "tundra");
+
+        assertThat(stats.top(10)).extracting(PlanetFilterStats.HotFilter::getClimate)
+                .containsExactly("frozen", "temperate");
+    }
+
+    @Test
+    public void load_WithMissingFile_KeepsNoFilters() throws Exception {
+        PlanetFilterStats stats = new PlanetFilterStats();
+
+        stats.load(dir.resolve("missing.tsv"));
+
+        assertThat(stats.top(10)).isEmpty();
+    }
+
+}
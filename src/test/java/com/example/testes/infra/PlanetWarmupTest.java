@@ -0,0 +1,72 @@
+package com.example.testes.infra;
+
+import static com.example.testes.commom.PlanetConstant.PLANETS;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@ExtendWith(MockitoExtension.class)
+public class PlanetWarmupTest {
+
+    @Mock
+    private PlanetService planetService;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    public void run_PreloadsCachesAndPrecomputesHotFilters() throws Exception {
+        Path file = dir.resolve("hot-filters.tsv");
+        PlanetFilterStats previousRun = new PlanetFilterStats();
+        previousRun.record("arid", null);
+        previousRun.record("arid", null);
+        previousRun.save(file);
+        when(planetService.list(null, null)).thenReturn(PLANETS);
+        when(planetService.list("arid", null)).thenReturn(List.of(TATOOINE));
+        CacheManager cacheManager = new ConcurrentMapCacheManager(PlanetService.PLANETS_CACHE,
+                PlanetService.PLANETS_BY_NAME_CACHE);
+
+        new PlanetWarmup(planetService, new PlanetFilterStats(), cacheManager, new ObjectMapper(), file.toString(), 10, 2)
+                .run(new DefaultApplicationArguments());
+
+        verify(planetService).list("arid", null);
+        assertThat(cacheManager.getCache(PlanetService.PLANETS_CACHE).get(TATOOINE.getId(), Planet.class))
+                .isEqualTo(TATOOINE);
+        assertThat(cacheManager.getCache(PlanetService.PLANETS_BY_NAME_CACHE).get("tatooine", Planet.class))
+                .isEqualTo(TATOOINE);
+    }
+
+    @Test
+    public void refreshHotFilters_RecomputesMostRequestedLists() {
+        PlanetFilterStats filterStats = new PlanetFilterStats();
+        filterStats.record("arid", null);
+        filterStats.record("arid", null);
+        filterStats.record(null, "tundra");
+        CacheManager cacheManager = new ConcurrentMapCacheManager();
+
+        new PlanetWarmup(planetService, filterStats, cacheManager, new ObjectMapper(), "unused.tsv", 1, 2)
+                .refreshHotFilters();
+
+        verify(planetService).refreshList("arid", null);
+        verify(planetService, never()).refreshList(null, "tundra");
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.testes.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class ServerTimingFilterTest {
+
+    @Test
+    public void filter_WhenDisabled_DoesNotMeasure() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(false, 0);
+        AtomicReference<RequestTimings> timings = new AtomicReference<>();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/planets"), new MockHttpServletResponse(),
+                (request, response) -> timings.set(RequestTimings.current()));
+
+        assertThat(timings.get()).isNull();
+        assertThat(RequestTimings.time(RequestTimings.DB, () -> "result")).isEqualTo("result");
+    }
+
+    @Test
+    public void filter_WhenEnabled_RecordsPhasesForServerTimingHeader() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(true, 0);
+        AtomicReference<String> header = new AtomicReference<>();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/planets"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    RequestTimings.time(RequestTimings.SERVICE, () -> RequestTimings.time(RequestTimings.DB,
+                            () -> RequestTimings.record(RequestTimings.SQL, 1_000)));
+                    RequestTimings.current().markSerialization();
+                    header.set(RequestTimings.current().toServerTiming());
+                });
+
+        assertThat(header.get())
+                .startsWith("build;dur=")
+                .contains("db;dur=", "sql;dur=0.001", "hydrate;dur=", "app;dur=")
+                .doesNotContain("service;");
+        assertThat(RequestTimings.current()).isNull();
+    }
+
+    @Test
+    public void timings_ToLog_IncludesSerializationAndTotal() {
+        RequestTimings timings = RequestTimings.begin(false);
+        try {
+            RequestTimings.time(RequestTimings.VALIDATE, () -> { });
+            timings.markSerialization();
+
+            assertThat(timings.toLog("POST", "/planets", 201))
+                    .startsWith("method=POST path=/planets status=201 validate=")
+                    .contains(" ser=", " total=");
+        } finally {
+            RequestTimings.end();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.example.testes.web;
+
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static com.example.testes.commom.PlanetConstant.YAVINIV;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.web.server.ResponseStatusException;
+
+public class IdempotencyStoreTest {
+
+    @Test
+    public void execute_WithSameKey_ReplaysFirstResponse() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        IdempotencyStore.Outcome first = store.execute("key", TATOOINE, () -> {
+            calls.incrementAndGet();
+            return TATOOINE;
+        });
+        IdempotencyStore.Outcome retry = store.execute("key", TATOOINE, () -> {
+            calls.incrementAndGet();
+            return ALDERAAN;
+        });
+
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(retry.isReplayed()).isTrue();
+        assertThat(retry.getPlanet()).isSameAs(TATOOINE);
+        assertThat(calls).hasValue(1);
+        assertThat(store.getReplayRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void execute_WithSameKeyAndOtherRequest_ThrowsException() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+        store.execute("key", TATOOINE, () -> TATOOINE);
+
+        assertThatThrownBy(() -> store.execute("key", ALDERAAN, () -> ALDERAAN))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("different request");
+        assertThat(store.getMismatched()).isEqualTo(1);
+    }
+
+    @Test
+    public void execute_AfterFailure_ReleasesKey() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> store.execute("key", TATOOINE, () -> {
+            throw new DataIntegrityViolationException("duplicated name");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        int sizeAfterFailure = store.getSize();
+        IdempotencyStore.Outcome retry = store.execute("key", TATOOINE, () -> TATOOINE);
+
+        assertThat(sizeAfterFailure).isZero();
+        assertThat(retry.isReplayed()).isFalse();
+        assertThat(retry.getPlanet()).isSameAs(TATOOINE);
+        assertThat(store.getStored()).isEqualTo(1);
+    }
+
+    /*
+     * Entradas de criações que falharam saem da fila de expiração na hora, em vez
+     * de esperar chegar à cabeça: falhas seguidas não fazem a fila crescer além
+     * das chaves guardadas.
+     */
+    @Test
+    public void execute_AfterFailures_LeavesNothingQueued() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+        store.execute("ok", TATOOINE, () -> TATOOINE);
+        for (int i = 0; i < 100; i++) {
+            assertThatThrownBy(() -> store.execute("failed-" + UUID.randomUUID(), YAVINIV, () -> {
+                throw new DataIntegrityViolationException("duplicated name");
+            })).isInstanceOf(DataIntegrityViolationException.class);
+        }
+
+        assertThat(store.getSize()).isEqualTo(1);
+        assertThat(store.getQueued()).isEqualTo(1);
+        assertThat(store.execute("ok", TATOOINE, () -> TATOOINE).isReplayed()).isTrue();
+    }
+
+    @Test
+    public void counters_AreExportedAsMBeanAttributes() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+        store.execute("key", TATOOINE, () -> TATOOINE);
+        store.execute("key", TATOOINE, () -> TATOOINE);
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+        exporter.setServer(server);
+        exporter.registerManagedResource(store);
+
+        // Registrado fora de um contexto, o exportador acrescenta a identidade do objeto ao nome.
+        ObjectName name = server.queryNames(new ObjectName("com.example.testes:type=IdempotencyStore,*"), null)
+                .iterator().next();
+
+        assertThat(server.getAttribute(name, "ReplayRate")).isEqualTo(0.5);
+        assertThat(server.getAttribute(name, "Replayed")).isEqualTo(1L);
+        assertThat(server.getAttribute(name, "Stored")).isEqualTo(1L);
+    }
+
+    @Test
+    public void execute_BeyondCapacityOrTtl_EvictsOldestKeys() {
+        IdempotencyStore bounded = new IdempotencyStore(2, Duration.ofMinutes(1));
+        for (int i = 0; i < 5; i++) {
+            bounded.execute("key-" + i, TATOOINE, () -> TATOOINE);
+        }
+        IdempotencyStore expiring = new IdempotencyStore(10, Duration.ZERO);
+        expiring.execute("key", TATOOINE, () -> TATOOINE);
+
+        assertThat(bounded.getSize()).isEqualTo(2);
+        assertThat(bounded.execute("key-4", TATOOINE, () -> TATOOINE).isReplayed()).isTrue();
+        assertThat(bounded.execute("key-0", TATOOINE, () -> TATOOINE).isReplayed()).isFalse();
+        assertThat(expiring.execute("key", TATOOINE, () -> TATOOINE).isReplayed()).isFalse();
+    }
+
+}
@@ -3,38 +3,61 @@ package com.example.testes.web;
 import static com.example.testes.commom.PlanetConstant.PLANET;
 import static com.example.testes.commom.PlanetConstant.PLANETS;
 import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.example.testes.commom.AllocationMeter;
 import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetAttribute;
+import com.example.testes.domain.PlanetCount;
+import com.example.testes.domain.PlanetLookup;
 import com.example.testes.domain.PlanetService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(PlanetController.class)
+@Import(IdempotencyStore.class)
 public class PlanetControllerTest {
 
+   /*
+    * Medido: 11,9 MB com a JVM fria (teste isolado) e 4,5 MB no meio da suíte.
+    * O orçamento deixa cerca de 50% de folga sobre o pior caso.
+    */
+   private static final long LIST_10K_ALLOCATION_BUDGET = 18 * AllocationMeter.MB;
+
    @Autowired
    private MockMvc mockMvc;
 
@@ -118,6 +141,89 @@ public class PlanetControllerTest {
             .andExpect(status().isConflict());
    }
 
+   @Test
+   public void createPlanet_RetriedWithSameIdempotencyKey_ReplaysCreatedPlanet() throws Exception {
+      Planet createdPlanet = new Planet(1L, PLANET.getName(), PLANET.getClimate(), PLANET.getTerrain());
+      when(planetService.create(PLANET)).thenReturn(createdPlanet);
+
+      for (String replayed : List.of("false", "true")) {
+         mockMvc
+               .perform(
+                     post("/planets")
+                           .header(PlanetController.IDEMPOTENCY_KEY, "create-planet-1")
+                           .content(objectMapper.writeValueAsString(PLANET))
+                           .contentType(MediaType.APPLICATION_JSON))
+               .andExpect(status().isCreated())
+               .andExpect(header().string(PlanetController.IDEMPOTENT_REPLAYED, replayed))
+               .andExpect(jsonPath("$.id").value(1));
+      }
+
+      verify(planetService, times(1)).create(any());
+   }
+
+   @Test
+   public void createPlanet_WithReusedIdempotencyKeyAndOtherBody_ReturnsUnprocessableEntity() throws Exception {
+      when(planetService.create(any())).thenReturn(PLANET);
+
+      mockMvc
+            .perform(
+                  post("/planets")
+                        .header(PlanetController.IDEMPOTENCY_KEY, "create-planet-2")
+                        .content(objectMapper.writeValueAsString(PLANET))
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isCreated());
+
+      mockMvc
+            .perform(
+                  post("/planets")
+                        .header(PlanetController.IDEMPOTENCY_KEY, "create-planet-2")
+                        .content(objectMapper.writeValueAsString(TATOOINE))
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity());
+   }
+
+   @Test
+   public void updatePlanet_WithMatchingVersion_ReturnsPlanetAndETag() throws Exception {
+      Planet updatedPlanet = new Planet(1L, "Tatooine", "hot", "desert");
+      updatedPlanet.setVersion(4L);
+      when(planetService.update(1L, null, "hot", null, 3L)).thenReturn(updatedPlanet);
+
+      mockMvc
+            .perform(
+                  patch("/planets/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content("{\"climate\":\"hot\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+            .andExpect(jsonPath("$.climate").value("hot"))
+            .andExpect(jsonPath("$.version").value(4));
+   }
+
+   @Test
+   public void updatePlanet_WithStaleVersion_ReturnsPreconditionFailed() throws Exception {
+      when(planetService.update(1L, null, "hot", null, 2L))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Planet.class, 1L));
+
+      mockMvc
+            .perform(
+                  patch("/planets/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "2")
+                        .content("{\"climate\":\"hot\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isPreconditionFailed());
+   }
+
+   @Test
+   public void updatePlanet_WithBlankValue_ReturnsUnprocessableEntity() throws Exception {
+      mockMvc
+            .perform(
+                  patch("/planets/{id}", 1L)
+                        .content("{\"name\":\" \"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity());
+   }
+
    @Test
    public void getPlanet_ByExistingId_ReturnsPlanet() throws JsonProcessingException, Exception {
       when(planetService.get(anyLong())).thenReturn(Optional.of(PLANET));
@@ -156,6 +262,47 @@ public class PlanetControllerTest {
             .andExpect(status().isNotFound());
    }
 
+   @Test
+   public void searchPlanets_ReturnsRankedPlanets() throws Exception {
+      when(planetService.search("tatoine", 10)).thenReturn(List.of(TATOOINE));
+
+      mockMvc
+            .perform(
+                  get("/planets/search").param("q", "tatoine"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0]").value(TATOOINE));
+   }
+
+   @Test
+   public void getPlanets_InBatch_ReturnsFoundAndMissingKeys() throws Exception {
+      when(planetService.getAll(List.of(1L, 99L), List.of("Unexisting planet")))
+            .thenReturn(new PlanetLookup(List.of(TATOOINE), List.of(99L), List.of("Unexisting planet")));
+
+      mockMvc
+            .perform(
+                  post("/planets/batch")
+                        .content("{\"ids\":[1,99],\"names\":[\"Unexisting planet\"]}")
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.planets", hasSize(1)))
+            .andExpect(jsonPath("$.planets[0]").value(TATOOINE))
+            .andExpect(jsonPath("$.missingIds[0]").value(99))
+            .andExpect(jsonPath("$.missingNames[0]").value("Unexisting planet"));
+   }
+
+   @Test
+   public void getPlanets_InBatchWithTooManyKeys_ReturnsUnprocessableEntity() throws Exception {
+      List<Long> ids = LongStream.rangeClosed(1, PlanetBatchRequest.MAX_KEYS + 1).boxed().toList();
+
+      mockMvc
+            .perform(
+                  post("/planets/batch")
+                        .content(objectMapper.writeValueAsString(Map.of("ids", ids)))
+                        .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isUnprocessableEntity());
+   }
+
    @Test
    public void listPlanets_ReturnsFilteredPlanets() throws Exception {
       // Cenário 1: listagem sem filtros
@@ -189,6 +336,24 @@ public class PlanetControllerTest {
       // primeira posição deste para obter o item da lista
    }
 
+   /*
+    * Orçamento de alocação da serialização: como o MockMvc executa a requisição
+    * na thread do teste, a medição cobre o controlador e a escrita do JSON.
+    */
+   @Test
+   public void listPlanets_With10kPlanets_StaysWithinAllocationBudget() throws Exception {
+      List<Planet> planets = LongStream.rangeClosed(1, 10_000)
+            .mapToObj(id -> new Planet(id, "Planet " + id, "arid", "desert"))
+            .toList();
+      when(planetService.list(null, null)).thenReturn(planets);
+      List<MvcResult> results = new ArrayList<>();
+
+      long allocated = AllocationMeter.allocatedBytes(() -> results.add(mockMvc.perform(get("/planets")).andReturn()));
+
+      assertThat(results.get(0).getResponse().getStatus()).isEqualTo(200);
+      assertThat(allocated).isLessThan(LIST_10K_ALLOCATION_BUDGET);
+   }
+
    @Test
    public void listPlanets_ReturnsNoPlanets() throws Exception {
       when(planetService.list(anyString(), anyString())).thenReturn(List.of());
@@ -200,6 +365,45 @@ public class PlanetControllerTest {
             .andExpect(jsonPath("$", hasSize(0)));
    }
 
+   @Test
+   public void samplePlanets_ReturnsRandomPlanets() throws Exception {
+      when(planetService.sample(2, TATOOINE.getClimate(), null)).thenReturn(List.of(TATOOINE));
+
+      mockMvc
+            .perform(
+                  get("/planets/random")
+                        .param("n", "2")
+                        .param("climate", TATOOINE.getClimate()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0]").value(TATOOINE));
+   }
+
+   @Test
+   public void countPlanets_ByClimate_ReturnsCounts() throws Exception {
+      when(planetService.count(PlanetAttribute.CLIMATE, true, null, TATOOINE.getTerrain()))
+            .thenReturn(List.of(new PlanetCount(TATOOINE.getClimate(), 1L)));
+
+      mockMvc
+            .perform(
+                  get("/planets/stats")
+                        .param("groupBy", "climate")
+                        .param("tokens", "true")
+                        .param("terrain", TATOOINE.getTerrain()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].value").value(TATOOINE.getClimate()))
+            .andExpect(jsonPath("$[0].total").value(1));
+   }
+
+   @Test
+   public void countPlanets_ByUnknownAttribute_ReturnsBadRequest() throws Exception {
+      mockMvc
+            .perform(
+                  get("/planets/stats").param("groupBy", "population"))
+            .andExpect(status().isBadRequest());
+   }
+
    @Test
    public void removePlanet_WithExistingId_ReturnsNoContent() throws Exception {
       mockMvc
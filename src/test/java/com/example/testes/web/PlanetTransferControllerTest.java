@@ -0,0 +1,254 @@
+package com.example.testes.web;
+
+import static com.example.testes.commom.PlanetConstant.ALDERAAN;
+import static com.example.testes.commom.PlanetConstant.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.testes.domain.Planet;
+import com.example.testes.domain.PlanetService;
+
+@WebMvcTest(PlanetTransferController.class)
+public class PlanetTransferControllerTest {
+
+   @Autowired
+   private MockMvc mockMvc;
+
+   @MockBean
+   private PlanetService planetService;
+
+   @SuppressWarnings("unchecked")
+   private void exportPlanets(Planet... planets) {
+      doAnswer(invocation -> {
+         Consumer<Planet> consumer = invocation.getArgument(0);
+         for (Planet planet : planets) {
+            consumer.accept(planet);
+         }
+         return null;
+      }).when(planetService).export(any(Consumer.class));
+   }
+
+   /*
+    * O corpo do export é um StreamingResponseBody, escrito de forma assíncrona.
+    * Por isso é necessário aguardar o início do processamento assíncrono e então
+    * fazer o asyncDispatch para obter a resposta completa.
+    */
+   @Test
+   public void exportPlanets_AsCsv_ReturnsQuotedRows() throws Exception {
+      exportPlanets(TATOOINE, ALDERAAN);
+
+      MvcResult result = mockMvc
+            .perform(get("/planets/export").param("format", "csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+      mockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv"))
+            .andExpect(content().string(
+                  "id,name,climate,terrain\n"
+                        + "1,Tatooine,arid,desert\n"
+                        + "2,Alderaan,temperate,\"grasslands, mountains\"\n"));
+   }
+
+   @Test
+   public void exportPlanets_WithGzip_ReturnsCompressedNdjson() throws Exception {
+      exportPlanets(TATOOINE);
+
+      MvcResult result = mockMvc
+            .perform(get("/planets/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+      byte[] body = mockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+      String json = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+            StandardCharsets.UTF_8);
+      assertThat(json).startsWith("{").endsWith("}\n").contains("\"name\":\"Tatooine\"");
+   }
+
+   @Test
+   public void exportPlanets_WithUnknownFormat_ReturnsBadRequest() throws Exception {
+      mockMvc
+            .perform(get("/planets/export").param("format", "xml"))
+            .andExpect(status().isBadRequest());
+   }
+
+   @Test
+   public void exportPlanets_WithGzipRefused_ReturnsPlainNdjson() throws Exception {
+      exportPlanets(TATOOINE);
+
+      MvcResult result = mockMvc
+            .perform(get("/planets/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+      mockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(content().string(startsWith("{")));
+   }
+
+   @Test
+   public void acceptsGzip_HonorsQualityValues() {
+      assertThat(PlanetTransferController.acceptsGzip("gzip, deflate, br")).isTrue();
+      assertThat(PlanetTransferController.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+      assertThat(PlanetTransferController.acceptsGzip("*;q=0.1")).isTrue();
+      assertThat(PlanetTransferController.acceptsGzip("gzip;q=0")).isFalse();
+      assertThat(PlanetTransferController.acceptsGzip("*, gzip;q=0.000")).isFalse();
+      assertThat(PlanetTransferController.acceptsGzip("identity")).isFalse();
+      assertThat(PlanetTransferController.acceptsGzip(null)).isFalse();
+   }
+
+   @Test
+   public void importPlanets_FromCsv_ReportsRejectedRows() throws Exception {
+      Planet hoth = new Planet("Hoth", "frozen", "tundra");
+      when(planetService.createAll(any())).thenAnswer(invocation -> {
+         List<Planet> planets = invocation.getArgument(0);
+         return planets.stream().filter(hoth::equals).toList();
+      });
+
+      String csv = "name,climate,terrain\n"
+            + "Tatooine,arid,desert\n"
+            + ",temperate,\"grasslands, mountains\"\n"
+            + "Hoth,frozen,tundra\n"
+            + "Naboo,temperate\n";
+
+      mockMvc
+            .perform(post("/planets/import").param("format", "csv").content(csv))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejectedCount").value(3))
+            .andExpect(jsonPath("$.rejected[0].row").value(2))
+            .andExpect(jsonPath("$.rejected[0].errors[0]", startsWith("name: ")))
+            .andExpect(jsonPath("$.rejected[1].row").value(3))
+            .andExpect(jsonPath("$.rejected[1].errors[0]").value("name: already exists"))
+            .andExpect(jsonPath("$.rejected[2].row").value(4));
+
+      verify(planetService).createAll(List.of(new Planet("Tatooine", "arid", "desert"), hoth));
+      verify(planetService, never()).create(any());
+   }
+
+   @Test
+   public void importPlanets_WhenBatchConflicts_RetriesRowByRow() throws Exception {
+      Planet hoth = new Planet("Hoth", "frozen", "tundra");
+      when(planetService.createAll(any())).thenThrow(DataIntegrityViolationException.class);
+      when(planetService.create(hoth)).thenThrow(DataIntegrityViolationException.class);
+
+      mockMvc
+            .perform(post("/planets/import").param("format", "csv")
+                  .content("name,climate,terrain\nTatooine,arid,desert\nHoth,frozen,tundra\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejected[0].row").value(2))
+            .andExpect(jsonPath("$.rejected[0].errors[0]").value("name: already exists"));
+
+      verify(planetService).create(new Planet("Tatooine", "arid", "desert"));
+   }
+
+   @Test
+   public void importPlanets_WithManyRows_CreatesInBatches() throws Exception {
+      StringBuilder csv = new StringBuilder("name,climate,terrain\n");
+      for (int i = 0; i < PlanetTransferController.IMPORT_BATCH_SIZE + 1; i++) {
+         csv.append("Planet ").append(i).append(",arid,desert\n");
+      }
+      when(planetService.createAll(any())).thenReturn(List.of());
+
+      mockMvc
+            .perform(post("/planets/import").param("format", "csv").content(csv.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(PlanetTransferController.IMPORT_BATCH_SIZE + 1));
+
+      verify(planetService, times(2)).createAll(any());
+   }
+
+   @Test
+   public void importPlanets_WithMalformedRowClosingBatch_KeepsBatchesBounded() throws Exception {
+      int batchSize = PlanetTransferController.IMPORT_BATCH_SIZE;
+      StringBuilder csv = new StringBuilder("name,climate,terrain\n");
+      for (int i = 0; i < 2 * batchSize; i++) {
+         csv.append(i == batchSize - 1 ? "Planet " + i + ",arid\n" : "Planet " + i + ",arid,desert\n");
+      }
+      List<Integer> batchSizes = new ArrayList<>();
+      when(planetService.createAll(any())).thenAnswer(invocation -> {
+         List<Planet> planets = invocation.getArgument(0);
+         batchSizes.add(planets.size());
+         return List.of();
+      });
+
+      mockMvc
+            .perform(post("/planets/import").param("format", "csv").content(csv.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2 * batchSize - 1))
+            .andExpect(jsonPath("$.rejected[0].row").value(batchSize));
+
+      assertThat(batchSizes).containsExactly(batchSize - 1, batchSize);
+   }
+
+   @Test
+   public void importPlanets_FromGzipNdjson_CreatesPlanets() throws Exception {
+      String ndjson = "{\"id\":7,\"name\":\"Tatooine\",\"climate\":\"arid\",\"terrain\":\"desert\"}\n"
+            + "\n"
+            + "{not json}\n";
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+         gzip.write(ndjson.getBytes(StandardCharsets.UTF_8));
+      }
+
+      mockMvc
+            .perform(post("/planets/import")
+                  .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                  .content(compressed.toByteArray()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejectedCount").value(1));
+
+      verify(planetService).createAll(List.of(new Planet("Tatooine", "arid", "desert")));
+   }
+
+   @Test
+   public void importPlanets_WithInvalidCsvHeader_ReturnsBadRequest() throws Exception {
+      mockMvc
+            .perform(post("/planets/import").param("format", "csv").content("foo,bar\n1,2\n"))
+            .andExpect(status().isBadRequest());
+   }
+
+}
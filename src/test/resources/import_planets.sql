@@ -1,3 +1,5 @@
-INSERT INTO planets (id, name, climate, terrain) VALUES (1, 'Tatooine', 'arid', 'desert');
-INSERT INTO planets (id, name, climate, terrain) VALUES (2, 'Alderaan', 'temperate', 'grasslands, mountains');
-INSERT INTO planets (id, name, climate, terrain) VALUES (3, 'Yavin IV', 'temperate, tropical', 'jungle, rainforests');
\ No newline at end of file
+INSERT INTO planets (id, name, normalized_name, climate, terrain) VALUES (1, 'Tatooine', 'tatooine', 'arid', 'desert');
+INSERT INTO planets (id, name, normalized_name, climate, terrain) VALUES (2, 'Alderaan', 'alderaan', 'temperate', 'grasslands, mountains');
+INSERT INTO planets (id, name, normalized_name, climate, terrain) VALUES (3, 'Yavin IV', 'yavin iv', 'temperate, tropical', 'jungle, rainforests');
+-- Os ids acima foram informados explicitamente: a identidade continua depois deles.
+ALTER TABLE planets ALTER COLUMN id RESTART WITH 4;